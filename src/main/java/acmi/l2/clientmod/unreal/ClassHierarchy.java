@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import acmi.l2.clientmod.unreal.util.NameInterner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class tree with constant time subclass checks.
+ * Classes are added on first use, each node keeps a set of its ancestors ordinals.
+ */
+class ClassHierarchy {
+    private final NameInterner names;
+    private final Function<String, String> superClass;
+    private final Supplier<Stream<UnrealPackage.ExportEntry>> classes;
+
+    private final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+    private int nextOrdinal;
+    private final Object scanLock = new Object();
+    private volatile boolean scanned;
+
+    /**
+     * @param names      interner of class names
+     * @param superClass superclass name resolver
+     * @param classes    all classes of environment, used for subclasses queries
+     */
+    ClassHierarchy(NameInterner names, Function<String, String> superClass, Supplier<Stream<UnrealPackage.ExportEntry>> classes) {
+        this.names = names;
+        this.superClass = superClass;
+        this.classes = classes;
+    }
+
+    boolean isSubclass(String parent, String child) {
+        if (parent.equalsIgnoreCase(child)) {
+            return true;
+        }
+
+        // adds child chain, parent that is not in it isn't interned
+        Node childNode = node(child, null, false);
+        Node parentNode = find(parent);
+        return parentNode != null && childNode.ancestors.get(parentNode.ordinal);
+    }
+
+    List<String> getDirectSubclasses(String name) {
+        scan();
+
+        Node node = find(name);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        return node.children.stream()
+                .map(child -> child.name)
+                .collect(Collectors.toList());
+    }
+
+    private void scan() {
+        if (scanned) {
+            return;
+        }
+
+        synchronized (scanLock) {
+            if (!scanned) {
+                classes.get().forEach(entry -> node(entry.getObjectFullName(),
+                        entry.getObjectSuperClass() != null ? entry.getObjectSuperClass().getObjectFullName() : null,
+                        true));
+                scanned = true;
+            }
+        }
+    }
+
+    /**
+     * Resolves superclass chain up to existing node without lock, then adds missing nodes from top to bottom.
+     */
+    private Node node(String name, String superName, boolean superKnown) {
+        Node node = find(name);
+        if (node != null) {
+            return node;
+        }
+
+        List<String> chain = new ArrayList<>();
+        Set<Integer> chainIds = new HashSet<>();
+        for (String n = name; n != null; ) {
+            int id = names.id(n);
+            if ((node = nodes.get(id)) != null || !chainIds.add(id)) {
+                break;
+            }
+            chain.add(n);
+
+            if (superKnown) {
+                n = superName;
+                superKnown = false;
+            } else {
+                n = superClass.apply(n);
+            }
+        }
+
+        synchronized (this) {
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                String n = chain.get(i);
+                int id = names.id(n);
+                Node existing = nodes.get(id);
+                if (existing == null) {
+                    existing = new Node(n, nextOrdinal++, node);
+                    nodes.put(id, existing);
+                    if (node != null) {
+                        node.children.add(existing);
+                    }
+                }
+                node = existing;
+            }
+        }
+        return node;
+    }
+
+    private Node find(String name) {
+        int id = names.find(name);
+        return id != NameInterner.NOT_FOUND ? nodes.get(id) : null;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final int ordinal;
+        private final BitSet ancestors;
+        private final List<Node> children = new CopyOnWriteArrayList<>();
+
+        private Node(String name, int ordinal, Node parent) {
+            this.name = name;
+            this.ordinal = ordinal;
+            this.ancestors = parent != null ? (BitSet) parent.ancestors.clone() : new BitSet();
+            this.ancestors.set(ordinal);
+        }
+    }
+}
@@ -17,12 +17,10 @@ package acmi.l2.clientmod.unreal;
 
 import acmi.l2.clientmod.io.UnrealPackage;
 import lombok.NonNull;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.filefilter.WildcardFileFilter;
 
 import java.io.File;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -34,20 +32,19 @@ public interface Env {
 
     List<String> getPaths();
 
+    /**
+     * Scans package folders on each call. {@link Environment} overrides this and {@link #getPackage(String)}
+     * with a listing cached until {@link Environment#refreshFiles()}, other implementations should cache it too.
+     */
     default Stream<File> listFiles() {
-        return getPaths().stream().flatMap(s -> {
-            File file = new File(getStartDir(), s);
-            File parent = file.getParentFile();
-            if (!parent.exists()) {
-                return Stream.empty();
-            }
-            return FileUtils.listFiles(file.getParentFile(), new WildcardFileFilter(file.getName()), null).stream();
-        });
+        return PackageDirectoryIndex.scan(getStartDir(), getPaths()).files();
     }
 
+    /**
+     * Scans package folders on each call, see {@link #listFiles()}.
+     */
     default Stream<File> getPackage(String name) {
-        return listFiles()
-                .filter(file -> FilenameUtils.removeExtension(file.getName()).equalsIgnoreCase(name));
+        return PackageDirectoryIndex.scan(getStartDir(), getPaths()).get(name).stream();
     }
 
     default Optional<UnrealPackage> getPackage(File f) {
@@ -84,5 +81,9 @@ public interface Env {
         return entryOptional;
     }
 
+    default ByteBuffer getObjectRawData(@NonNull UnrealPackage.ExportEntry entry) throws UncheckedIOException {
+        return ByteBuffer.wrap(entry.getObjectRawDataExternally());
+    }
+
     void markInvalid(String pckg);
 }
@@ -31,12 +31,24 @@ import acmi.l2.clientmod.io.UnrealPackage;
 import lombok.Getter;
 
 import lombok.NonNull;
+import lombok.Setter;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.function.BinaryOperator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,22 +60,63 @@ public class Environment implements Env {
     private static final Logger log = Logger.getLogger(Environment.class.getName());
 
     private static final Set<String> BUFFERED_PACKAGES = new HashSet<>(Arrays.asList(System.getProperty("L2unreal.bufferedExt", "").split(",")));
+    private static final Set<String> MAPPED_PACKAGES = new HashSet<>(Arrays.asList(System.getProperty("L2unreal.mappedExt", "").split(",")));
+
+    /**
+     * Start of encrypted package files, export offsets are relative to decrypted data.
+     */
+    private static final byte[] ENCRYPTED_HEADER = "Lineage2Ver".getBytes(StandardCharsets.UTF_16LE);
 
     private static final Pattern PATHS_PATTERN = Pattern.compile("\\s*Paths=(.*)");
 
+    private static final String EXPORT_INDEX = System.getProperty("L2unreal.exportIndex");
+    private static final int PACKAGE_CACHE_SIZE = Integer.getInteger("L2unreal.packageCacheSize", 0);
+    private static final long PACKAGE_CACHE_MEMORY = Long.getLong("L2unreal.packageCacheMemory", 0L);
+
     @Getter
     private final File startDir;
     @Getter
     private final List<String> paths;
 
-    private final Map<String, List<File>> fileCache = new HashMap<>();
-    private final Map<File, UnrealPackage> pckgCache = new HashMap<>();
-    private final Map<UnrealPackage, Map<String, UnrealPackage.ExportEntry[]>> entriesCache = new HashMap<>();
-    private final Map<UnrealPackage, Map<String, UnrealPackage.ExportEntry[]>> entriesCache2 = new HashMap<>();
+    private volatile PackageDirectoryIndex directoryIndex;
+    private final ConcurrentMap<File, CompletableFuture<CachedPackage>> pckgCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UnrealPackage, CachedPackage> loadedPackages = new ConcurrentHashMap<>();
+    private final ExportEntryIndex exportEntries = new ExportEntryIndex();
+    private final AtomicLong cachedMemory = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    /**
+     * Max number of cached packages, 0 - unlimited.
+     */
+    @Getter
+    @Setter
+    private volatile int packageCacheSize = PACKAGE_CACHE_SIZE;
+    /**
+     * Max estimated heap size of cached packages, 0 - unlimited.
+     */
+    @Getter
+    @Setter
+    private volatile long packageCacheMemory = PACKAGE_CACHE_MEMORY;
+    /**
+     * Extensions of packages whose export data is memory mapped, applies to packages loaded after change.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private volatile Set<String> mappedExtensions = MAPPED_PACKAGES;
+
+    @Getter
+    private File exportIndexFile;
+    private volatile ExportIndex exportIndex;
 
     public Environment(@NonNull File startDir, @NonNull List<String> paths) {
         this.startDir = startDir;
         this.paths = paths;
+
+        if (EXPORT_INDEX != null && !EXPORT_INDEX.isEmpty()) {
+            File indexFile = new File(EXPORT_INDEX);
+            this.exportIndexFile = indexFile.isAbsolute() ? indexFile : new File(startDir, EXPORT_INDEX);
+        }
     }
 
     public static Environment fromIni(File ini) throws UncheckedIOException {
@@ -106,75 +159,330 @@ public class Environment implements Env {
         }
     }
 
-    @Override
-    public Stream<File> getPackage(String name) {
-        if (!fileCache.containsKey(name)) {
-            fileCache.put(name, listFiles()
-                    .filter(file -> FilenameUtils.removeExtension(file.getName()).equalsIgnoreCase(name))
-                    .collect(Collectors.toList()));
+    private PackageDirectoryIndex getDirectoryIndex() {
+        PackageDirectoryIndex index = directoryIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = directoryIndex;
+                if (index == null) {
+                    directoryIndex = index = PackageDirectoryIndex.scan(startDir, paths);
+                }
+            }
         }
+        return index;
+    }
 
-        return fileCache.get(name).stream();
+    /**
+     * Forgets listed package files, folders are scanned again on next lookup.
+     */
+    public void refreshFiles() {
+        directoryIndex = null;
+    }
+
+    @Override
+    public Stream<File> listFiles() {
+        return getDirectoryIndex().files();
+    }
+
+    @Override
+    public Stream<File> getPackage(String name) {
+        return getDirectoryIndex().get(name).stream();
     }
 
     @Override
     public Optional<UnrealPackage> getPackage(File f) {
-        if (!pckgCache.containsKey(f)) {
-            log.fine("Loading " + f.getPath());
-
-            try (RandomAccess ra = createRandomAccess(f)) {
-                UnrealPackage up = new UnrealPackage(ra);
-                pckgCache.put(f, up);
-
-                BinaryOperator<UnrealPackage.ExportEntry[]> bo = (exportEntries, exportEntries2) -> {
-                    UnrealPackage.ExportEntry[] res = new UnrealPackage.ExportEntry[exportEntries.length + exportEntries2.length];
-                    System.arraycopy(exportEntries, 0, res, 0, exportEntries.length);
-                    System.arraycopy(exportEntries2, 0, res, exportEntries.length, exportEntries2.length);
-                    return res;
-                };
-                entriesCache.put(up, up.getExportTable().stream().collect(Collectors.toMap(e -> e.getObjectFullName().toLowerCase(), e -> new UnrealPackage.ExportEntry[]{e}, bo)));
-                entriesCache2.put(up, up.getExportTable().stream().collect(Collectors.toMap(e -> e.getObjectName().getName().toLowerCase(), e -> new UnrealPackage.ExportEntry[]{e}, bo)));
-            } catch (Exception e) {
-                log.log(Level.WARNING, e, () -> String.format("Couldn't load %s", f.getPath()));
+        return Optional.ofNullable(getCachedPackage(f))
+                .map(CachedPackage::getUnrealPackage);
+    }
+
+    /**
+     * @return cached package or null if it couldn't be loaded
+     */
+    private CachedPackage getCachedPackage(File f) {
+        CachedPackage cp;
+        try {
+            cp = cachedPackageFuture(f).join();
+        } catch (CompletionException e) {
+            return null;
+        }
+        cp.lastAccess = System.nanoTime();
+        return cp;
+    }
+
+    /**
+     * Each file is loaded at most once, concurrent callers wait for the first one.
+     * Failed loads are not cached.
+     */
+    private CompletableFuture<CachedPackage> cachedPackageFuture(File f) {
+        CompletableFuture<CachedPackage> future = pckgCache.get(f);
+        if (future == null) {
+            CompletableFuture<CachedPackage> newFuture = new CompletableFuture<>();
+            future = pckgCache.putIfAbsent(f, newFuture);
+            if (future == null) {
+                future = newFuture;
+                try {
+                    CachedPackage cp = loadPackage(f);
+                    cp.lastAccess = System.nanoTime();
+                    cachedMemory.addAndGet(cp.getEstimatedSize());
+                    newFuture.complete(cp);
+                    if (pckgCache.get(f) != newFuture) {
+                        // invalidated while loading
+                        forget(cp);
+                    }
+                    evictIfNeeded(f);
+                } catch (Exception e) {
+                    log.log(Level.WARNING, e, () -> String.format("Couldn't load %s", f.getPath()));
+                    pckgCache.remove(f, newFuture);
+                    newFuture.completeExceptionally(e);
+                } finally {
+                    if (!newFuture.isDone()) {
+                        pckgCache.remove(f, newFuture);
+                        newFuture.completeExceptionally(new UnrealException("Couldn't load " + f.getPath()));
+                    }
+                }
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Loads packages and builds their export lookup tables in parallel.
+     *
+     * @return failed files, completes when all matching packages are processed
+     */
+    public CompletableFuture<Map<File, Throwable>> preload(@NonNull Predicate<File> filter, @NonNull Executor executor) {
+        return preload(filter, executor, null);
+    }
+
+    /**
+     * Loads packages and builds their export lookup tables in parallel.
+     * If package cache is bounded, only the most recently loaded packages stay cached.
+     *
+     * @param listener notified from executor threads as packages are processed, nullable
+     * @return failed files, completes when all matching packages are processed
+     */
+    public CompletableFuture<Map<File, Throwable>> preload(@NonNull Predicate<File> filter, @NonNull Executor executor, PreloadListener listener) {
+        List<File> files = listFiles()
+                .filter(filter)
+                .collect(Collectors.toList());
+        int total = files.size();
+        AtomicInteger done = new AtomicInteger();
+        Map<File, Throwable> failed = new ConcurrentHashMap<>();
+
+        CompletableFuture<?>[] tasks = files.stream()
+                .map(f -> CompletableFuture
+                        .runAsync(() -> {
+                            cachedPackageFuture(f).join();
+                        }, executor)
+                        .whenComplete((v, e) -> {
+                            int n = done.incrementAndGet();
+                            if (e != null) {
+                                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                                failed.put(f, cause);
+                                if (listener != null) {
+                                    listener.failed(f, cause, n, total);
+                                }
+                            } else if (listener != null) {
+                                listener.loaded(f, n, total);
+                            }
+                        }))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(tasks)
+                .handle((v, e) -> failed);
+    }
+
+    /**
+     * Removes least recently used packages while cache exceeds its limits, evicted packages are loaded again on next access.
+     */
+    private void evictIfNeeded(File keep) {
+        synchronized (evictionLock) {
+            while (isCacheOverflowed()) {
+                File eldest = null;
+                long eldestAccess = Long.MAX_VALUE;
+                for (Map.Entry<File, CompletableFuture<CachedPackage>> e : pckgCache.entrySet()) {
+                    CachedPackage cp = e.getValue().getNow(null);
+                    if (cp != null && !e.getKey().equals(keep) && cp.lastAccess < eldestAccess) {
+                        eldest = e.getKey();
+                        eldestAccess = cp.lastAccess;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+
+                File f = eldest;
+                log.fine(() -> "Evict from cache " + f.getPath());
+                removeFromCache(f);
+            }
+        }
+    }
+
+    private boolean isCacheOverflowed() {
+        int maxSize = packageCacheSize;
+        long maxMemory = packageCacheMemory;
+        return (maxSize > 0 && pckgCache.size() > maxSize) ||
+                (maxMemory > 0 && cachedMemory.get() > maxMemory);
+    }
+
+    private void removeFromCache(File f) {
+        CompletableFuture<CachedPackage> removed = pckgCache.remove(f);
+        CachedPackage cp = removed != null ? removed.getNow(null) : null;
+        if (cp != null) {
+            forget(cp);
+        }
+    }
+
+    private void forget(CachedPackage cp) {
+        if (loadedPackages.remove(cp.getUnrealPackage(), cp)) {
+            cachedMemory.addAndGet(-cp.getEstimatedSize());
+            exportEntries.remove(cp.exports);
+            cp.releaseMapping();
+        }
+    }
+
+    private CachedPackage loadPackage(File f) {
+        log.fine("Loading " + f.getPath());
+
+        try (RandomAccess ra = createRandomAccess(f)) {
+            UnrealPackage up = new UnrealPackage(ra);
+
+            ExportIndex index = getExportIndex();
+            if (index != null && index.get(f) == null) {
+                index.put(f, up);
+            }
+
+            CachedPackage cp = new CachedPackage(f, up, mappedExtensions.contains(getExtension(f)));
+            cp.exports = exportEntries.add(FilenameUtils.removeExtension(f.getName()), up);
+            loadedPackages.put(up, cp);
+            return cp;
+        }
+    }
+
+    /**
+     * Export index file lets {@link #getExportEntry(String, Predicate)} skip packages that don't contain requested entry
+     * without reading their headers. Index is loaded on first use and written by {@link #saveExportIndex()}.
+     *
+     * @param exportIndexFile index file or null to disable
+     */
+    public synchronized void setExportIndexFile(File exportIndexFile) {
+        this.exportIndexFile = exportIndexFile;
+        this.exportIndex = null;
+    }
+
+    private ExportIndex getExportIndex() {
+        ExportIndex index = exportIndex;
+        if (index == null && exportIndexFile != null) {
+            synchronized (this) {
+                index = exportIndex;
+                if (index == null && exportIndexFile != null) {
+                    exportIndex = index = ExportIndex.load(exportIndexFile);
+                }
             }
         }
+        return index;
+    }
 
-        return Optional.ofNullable(pckgCache.get(f));
+    public void saveExportIndex() throws UncheckedIOException {
+        ExportIndex index = getExportIndex();
+        if (index != null) {
+            index.save();
+        }
     }
 
+    /**
+     * Looks up full name in all packages named as its first segment, then object name in the same packages.
+     */
     @Override
     public Optional<UnrealPackage.ExportEntry> getExportEntry(@NonNull String fullName, @NonNull Predicate<String> fullClassName) throws UncheckedIOException {
-        String[] path = fullName.split("\\.");
-        Optional<UnrealPackage.ExportEntry> entryOptional = listPackages(path[0])
-                .map(entriesCache::get)
-                .map(map -> map.getOrDefault(fullName.toLowerCase(), new UnrealPackage.ExportEntry[0]))
-                .flatMap(Arrays::stream)
-                .filter(e -> fullClassName.test(e.getFullClassName()))
-                .findAny();
-        if (!entryOptional.isPresent()) {
-            entryOptional = listPackages(path[0])
-                    .map(entriesCache2::get)
-                    .map(map -> map.getOrDefault(path[path.length - 1].toLowerCase(), new UnrealPackage.ExportEntry[0]))
-                    .flatMap(Arrays::stream)
-                    .filter(e -> fullClassName.test(e.getFullClassName()))
-                    .findAny();
-        }
-        return entryOptional;
+        UnrealPackage.ExportEntry entry = exportEntries.findByFullName(fullName, fullClassName);
+        if (entry == null && loadPackages(fullName, fullClassName, true)) {
+            entry = exportEntries.findByFullName(fullName, fullClassName);
+        }
+        if (entry == null) {
+            loadPackages(fullName, fullClassName, false);
+            entry = exportEntries.findByName(fullName, fullClassName);
+        }
+        if (entry != null) {
+            CachedPackage cp = loadedPackages.get(entry.getUnrealPackage());
+            if (cp != null) {
+                cp.lastAccess = System.nanoTime();
+            }
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Loads packages named as first segment of fullName that are not cached yet,
+     * packages that can't contain the entry of matching class according to export index are skipped.
+     *
+     * @param byFullName whether index is checked for full name or for object name
+     * @return true if any package was loaded
+     */
+    private boolean loadPackages(String fullName, Predicate<String> fullClassName, boolean byFullName) {
+        int packageEnd = fullName.indexOf('.');
+        String packageName = packageEnd < 0 ? fullName : fullName.substring(0, packageEnd);
+        String name = fullName.substring(fullName.lastIndexOf('.') + 1);
+        ExportIndex index = getExportIndex();
+
+        boolean loaded = false;
+        for (File f : getDirectoryIndex().get(packageName)) {
+            CompletableFuture<CachedPackage> future = pckgCache.get(f);
+            if (future != null && future.isDone()) {
+                continue;
+            }
+
+            ExportIndex.PackageIndex packageIndex = index != null ? index.get(f) : null;
+            if (packageIndex != null && (byFullName ?
+                    !packageIndex.containsFullName(fullName, fullClassName) :
+                    !packageIndex.containsName(name, fullClassName))) {
+                continue;
+            }
+
+            if (getCachedPackage(f) != null) {
+                loaded = true;
+            }
+        }
+        return loaded;
     }
 
     @Override
     public void markInvalid(String pckg) {
+        ExportIndex index = getExportIndex();
         getPackage(pckg).forEach(file -> {
-            UnrealPackage toRemove = pckgCache.remove(file);
-            entriesCache.remove(toRemove);
-            entriesCache2.remove(toRemove);
+            removeFromCache(file);
+            if (index != null) {
+                index.remove(file);
+            }
 
             log.fine("Remove from cache " + file.getPath());
         });
     }
 
+    /**
+     * Export data of unencrypted packages listed in {@code L2unreal.mappedExt} is read from a memory mapping of the file,
+     * returned buffer is a read-only view of that mapping. Encrypted packages are read through {@link RandomAccessFile}.
+     */
+    @Override
+    public ByteBuffer getObjectRawData(@NonNull UnrealPackage.ExportEntry entry) throws UncheckedIOException {
+        CachedPackage cp = loadedPackages.get(entry.getUnrealPackage());
+        ByteBuffer mapping = cp != null && cp.mapped ? cp.getMapping() : null;
+        if (mapping == null) {
+            return Env.super.getObjectRawData(entry);
+        }
+
+        ByteBuffer buffer = mapping.duplicate();
+        ((Buffer) buffer).limit(entry.getOffset() + entry.getSize());
+        ((Buffer) buffer).position(entry.getOffset());
+        return buffer.slice();
+    }
+
+    private static String getExtension(File f) {
+        return f.getName().substring(f.getName().lastIndexOf('.') + 1);
+    }
+
     protected RandomAccess createRandomAccess(File f) {
-        if (BUFFERED_PACKAGES.contains(f.getName().substring(f.getName().lastIndexOf('.') + 1))) {
+        if (BUFFERED_PACKAGES.contains(getExtension(f))) {
             log.fine("Using buffered random access for " + f.getPath());
 
             return new BufferedRandomAccessFile(f, true, UnrealPackage.getDefaultCharset());
@@ -182,4 +490,74 @@ public class Environment implements Env {
 
         return new RandomAccessFile(f, true, UnrealPackage.getDefaultCharset());
     }
+
+    public interface PreloadListener {
+        void loaded(File file, int done, int total);
+
+        void failed(File file, Throwable error, int done, int total);
+    }
+
+    private static class CachedPackage {
+        private final File file;
+        @Getter
+        private final UnrealPackage unrealPackage;
+        private final boolean mapped;
+        private ExportEntryIndex.Export[] exports;
+        private volatile ByteBuffer mapping;
+        private volatile boolean encrypted;
+        @Getter
+        private final long estimatedSize;
+        private volatile long lastAccess;
+
+        CachedPackage(File file, UnrealPackage up, boolean mapped) {
+            this.file = file;
+            this.unrealPackage = up;
+            this.mapped = mapped;
+            // rough heap cost of parsed tables and lookup maps
+            this.estimatedSize = 512L * up.getExportTable().size() + 64L * up.getNameTable().size();
+        }
+
+        /**
+         * @return mapping of file or null if file is encrypted
+         */
+        ByteBuffer getMapping() throws UncheckedIOException {
+            ByteBuffer buffer = mapping;
+            if (buffer == null && !encrypted) {
+                synchronized (this) {
+                    buffer = mapping;
+                    if (buffer == null && !encrypted) {
+                        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                            if (isEncrypted(channel)) {
+                                log.fine(() -> file.getPath() + " is encrypted, not mapped");
+                                encrypted = true;
+                                return null;
+                            }
+
+                            log.fine(() -> "Mapping " + file.getPath());
+                            mapping = buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            }
+            return buffer;
+        }
+
+        private static boolean isEncrypted(FileChannel channel) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(ENCRYPTED_HEADER.length);
+            int read;
+            do {
+                read = channel.read(header, header.position());
+            } while (read > 0 && header.hasRemaining());
+            return !header.hasRemaining() && Arrays.equals(header.array(), ENCRYPTED_HEADER);
+        }
+
+        /**
+         * Mapping is unmapped by GC once buffers sliced from it are unreachable.
+         */
+        synchronized void releaseMapping() {
+            mapping = null;
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import acmi.l2.clientmod.unreal.util.NameIndex;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Export entries of loaded packages by full name and by object name.
+ */
+class ExportEntryIndex {
+    private final NameIndex<Export> byFullName = new NameIndex<>();
+    private final NameIndex<Export> byName = new NameIndex<>();
+
+    Export[] add(String packageName, UnrealPackage up) {
+        List<UnrealPackage.ExportEntry> exportTable = up.getExportTable();
+        Export[] exports = new Export[exportTable.size()];
+        Map<String, String> classNames = new HashMap<>();
+        for (int i = 0; i < exports.length; i++) {
+            UnrealPackage.ExportEntry entry = exportTable.get(i);
+            String fullClassName = entry.getFullClassName();
+            exports[i] = new Export(entry, entry.getObjectFullName(), packageName, classNames.computeIfAbsent(fullClassName, k -> k));
+            byFullName.add(exports[i].fullName, exports[i]);
+            byName.add(entry.getObjectName().getName(), exports[i]);
+        }
+        return exports;
+    }
+
+    void remove(Export[] exports) {
+        for (Export export : exports) {
+            byFullName.remove(export.fullName, export);
+            byName.remove(export.entry.getObjectName().getName(), export);
+        }
+    }
+
+    UnrealPackage.ExportEntry findByFullName(String fullName, Predicate<String> fullClassName) {
+        for (Object o : byFullName.values(fullName, 0, fullName.length())) {
+            Export export = (Export) o;
+            if (fullClassName.test(export.fullClassName)) {
+                return export.entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up last segment of fullName in packages named as first segment.
+     */
+    UnrealPackage.ExportEntry findByName(String fullName, Predicate<String> fullClassName) {
+        int packageEnd = fullName.indexOf('.');
+        if (packageEnd < 0) {
+            packageEnd = fullName.length();
+        }
+        for (Object o : byName.values(fullName, fullName.lastIndexOf('.') + 1, fullName.length())) {
+            Export export = (Export) o;
+            if (NameIndex.regionEquals(export.packageName, fullName, 0, packageEnd) &&
+                    fullClassName.test(export.fullClassName)) {
+                return export.entry;
+            }
+        }
+        return null;
+    }
+
+    static final class Export {
+        private final UnrealPackage.ExportEntry entry;
+        private final String fullName;
+        private final String packageName;
+        private final String fullClassName;
+
+        private Export(UnrealPackage.ExportEntry entry, String fullName, String packageName, String fullClassName) {
+            this.entry = entry;
+            this.fullName = fullName;
+            this.packageName = packageName;
+            this.fullClassName = fullClassName;
+        }
+    }
+}
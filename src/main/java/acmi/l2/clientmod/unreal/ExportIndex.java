@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Export tables of package files, persisted between runs.
+ * Entries are validated against file size and modification time.
+ */
+class ExportIndex {
+    private static final Logger log = Logger.getLogger(ExportIndex.class.getName());
+
+    private static final int MAGIC = 0x4C32_5549;
+    private static final int VERSION = 1;
+
+    private static final String[] EMPTY = new String[0];
+
+    @Getter
+    private final File file;
+    private final ConcurrentMap<File, PackageIndex> packages = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private ExportIndex(File file) {
+        this.file = file;
+    }
+
+    static ExportIndex load(@NonNull File file) {
+        ExportIndex index = new ExportIndex(file);
+        if (!file.isFile()) {
+            return index;
+        }
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+                log.warning(() -> String.format("%s: unsupported format, ignored", file.getPath()));
+                return index;
+            }
+
+            int packageCount = dis.readInt();
+            for (int i = 0; i < packageCount; i++) {
+                File packageFile = new File(dis.readUTF());
+                long size = dis.readLong();
+                long lastModified = dis.readLong();
+
+                String[] classes = new String[dis.readInt()];
+                for (int j = 0; j < classes.length; j++) {
+                    classes[j] = dis.readUTF();
+                }
+
+                int entryCount = dis.readInt();
+                PackageIndex packageIndex = new PackageIndex(size, lastModified, entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    String fullName = dis.readUTF();
+                    String fullClassName = classes[dis.readInt()];
+                    packageIndex.add(fullName, fullClassName);
+                }
+                index.packages.put(packageFile, packageIndex);
+            }
+
+            log.fine(() -> String.format("%s: %d packages", file.getPath(), index.packages.size()));
+        } catch (IOException e) {
+            log.log(Level.WARNING, e, () -> String.format("Couldn't read %s", file.getPath()));
+            index.packages.clear();
+        }
+
+        return index;
+    }
+
+    /**
+     * @return package index or null if file wasn't indexed or was changed since
+     */
+    PackageIndex get(File f) {
+        File key = f.getAbsoluteFile();
+        PackageIndex packageIndex = packages.get(key);
+        if (packageIndex == null) {
+            return null;
+        }
+
+        if (!packageIndex.validated) {
+            if (packageIndex.size != f.length() || packageIndex.lastModified != f.lastModified()) {
+                log.fine(() -> String.format("%s changed", f.getPath()));
+                packages.remove(key, packageIndex);
+                return null;
+            }
+            packageIndex.validated = true;
+        }
+
+        return packageIndex;
+    }
+
+    PackageIndex put(File f, UnrealPackage up) {
+        List<UnrealPackage.ExportEntry> exportTable = up.getExportTable();
+        PackageIndex packageIndex = new PackageIndex(f.length(), f.lastModified(), exportTable.size());
+        for (int i = 0; i < exportTable.size(); i++) {
+            UnrealPackage.ExportEntry entry = exportTable.get(i);
+            packageIndex.add(entry.getObjectFullName(), entry.getFullClassName());
+        }
+        packageIndex.validated = true;
+
+        packages.put(f.getAbsoluteFile(), packageIndex);
+        modified = true;
+
+        return packageIndex;
+    }
+
+    void remove(File f) {
+        if (packages.remove(f.getAbsoluteFile()) != null) {
+            modified = true;
+        }
+    }
+
+    synchronized void save() throws UncheckedIOException {
+        if (!modified) {
+            return;
+        }
+        modified = false;
+
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+
+            File tmp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                Map<File, PackageIndex> snapshot = new HashMap<>(packages);
+
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                dos.writeInt(snapshot.size());
+                for (Map.Entry<File, PackageIndex> e : snapshot.entrySet()) {
+                    PackageIndex packageIndex = e.getValue();
+
+                    dos.writeUTF(e.getKey().getPath());
+                    dos.writeLong(packageIndex.size);
+                    dos.writeLong(packageIndex.lastModified);
+
+                    Map<String, Integer> classes = new LinkedHashMap<>();
+                    for (String fullClassName : packageIndex.fullClassNames) {
+                        classes.putIfAbsent(fullClassName, classes.size());
+                    }
+                    dos.writeInt(classes.size());
+                    for (String clazz : classes.keySet()) {
+                        dos.writeUTF(clazz);
+                    }
+
+                    dos.writeInt(packageIndex.fullNames.size());
+                    for (int i = 0; i < packageIndex.fullNames.size(); i++) {
+                        dos.writeUTF(packageIndex.fullNames.get(i));
+                        dos.writeInt(classes.get(packageIndex.fullClassNames.get(i)));
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            log.fine(() -> String.format("%s saved", file.getPath()));
+        } catch (IOException e) {
+            modified = true;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static class PackageIndex {
+        private final long size;
+        private final long lastModified;
+        private final List<String> fullNames;
+        private final List<String> fullClassNames;
+        /**
+         * Class names of exports by lower case name.
+         */
+        private final Map<String, String[]> byFullName = new HashMap<>();
+        private final Map<String, String[]> byName = new HashMap<>();
+        private volatile boolean validated;
+
+        private PackageIndex(long size, long lastModified, int entryCount) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fullNames = new ArrayList<>(entryCount);
+            this.fullClassNames = new ArrayList<>(entryCount);
+        }
+
+        private void add(String fullName, String fullClassName) {
+            fullNames.add(fullName);
+            fullClassNames.add(fullClassName);
+            byFullName.merge(fullName.toLowerCase(), new String[]{fullClassName}, ExportIndex::concat);
+            byName.merge(fullName.substring(fullName.lastIndexOf('.') + 1).toLowerCase(), new String[]{fullClassName}, ExportIndex::concat);
+        }
+
+        private String[] getByFullName(String fullName) {
+            return byFullName.getOrDefault(fullName.toLowerCase(), EMPTY);
+        }
+
+        private String[] getByName(String name) {
+            return byName.getOrDefault(name.toLowerCase(), EMPTY);
+        }
+
+        boolean containsFullName(String fullName, Predicate<String> fullClassName) {
+            return matches(getByFullName(fullName), fullClassName);
+        }
+
+        boolean containsName(String name, Predicate<String> fullClassName) {
+            return matches(getByName(name), fullClassName);
+        }
+
+        private static boolean matches(String[] classes, Predicate<String> fullClassName) {
+            for (String clazz : classes) {
+                if (fullClassName.test(clazz)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        String[] res = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, res, a.length, b.length);
+        return res;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import lombok.NonNull;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Package files matching {@code Paths=} masks, grouped by case insensitive package name.
+ */
+class PackageDirectoryIndex {
+    private final List<File> files;
+    private final Map<String, List<File>> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private PackageDirectoryIndex(List<File> files) {
+        this.files = files;
+        for (File file : files) {
+            byName.computeIfAbsent(FilenameUtils.removeExtension(file.getName()), n -> new ArrayList<>(1)).add(file);
+        }
+    }
+
+    static PackageDirectoryIndex scan(@NonNull File startDir, @NonNull List<String> paths) throws UncheckedIOException {
+        Map<File, List<String>> listings = new HashMap<>();
+        List<File> files = new ArrayList<>();
+        for (String s : paths) {
+            File file = new File(startDir, s);
+            File parent = file.getParentFile();
+            if (!parent.isDirectory()) {
+                continue;
+            }
+
+            String wildcard = file.getName();
+            for (String name : listings.computeIfAbsent(parent, PackageDirectoryIndex::list)) {
+                if (FilenameUtils.wildcardMatch(name, wildcard)) {
+                    files.add(new File(parent, name));
+                }
+            }
+        }
+        return new PackageDirectoryIndex(files);
+    }
+
+    private static List<String> list(File dir) throws UncheckedIOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath())) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    names.add(path.getFileName().toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return names;
+    }
+
+    Stream<File> files() {
+        return files.stream();
+    }
+
+    List<File> get(String name) {
+        return byName.getOrDefault(name, Collections.emptyList());
+    }
+}
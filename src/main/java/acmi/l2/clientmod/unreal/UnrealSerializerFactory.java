@@ -22,7 +22,6 @@
 package acmi.l2.clientmod.unreal;
 
 import acmi.l2.clientmod.io.ObjectInput;
-import acmi.l2.clientmod.io.ObjectInputStream;
 import acmi.l2.clientmod.io.ObjectOutput;
 import acmi.l2.clientmod.io.*;
 import acmi.l2.clientmod.unreal.annotation.Bytecode;
@@ -31,21 +30,37 @@ import acmi.l2.clientmod.unreal.annotation.ObjectRef;
 import acmi.l2.clientmod.unreal.bytecode.BytecodeContext;
 import acmi.l2.clientmod.unreal.bytecode.TokenSerializerFactory;
 import acmi.l2.clientmod.unreal.bytecode.token.Token;
+import acmi.l2.clientmod.unreal.core.Field;
 import acmi.l2.clientmod.unreal.core.Object;
+import acmi.l2.clientmod.unreal.core.Property;
 import acmi.l2.clientmod.unreal.core.Struct;
 import acmi.l2.clientmod.unreal.properties.PropertiesUtil;
-import acmi.l2.clientmod.unreal.util.InvalidationListener;
-import acmi.l2.clientmod.unreal.util.ObservableSet;
-import acmi.l2.clientmod.unreal.util.ObservableSetWrapper;
+import acmi.l2.clientmod.unreal.properties.StructLayout;
+import acmi.l2.clientmod.unreal.util.ByteBufferObjectInput;
+import acmi.l2.clientmod.unreal.util.NameInterner;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 import java.io.*;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -57,32 +72,152 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
 
     private static final String LOAD_THREAD_NAME = "Unreal loader";
     private static final int LOAD_THREAD_STACK_SIZE = loadThreadStackSize();
+    private static final int LOAD_THREADS = loadThreads();
+    private static final boolean LAZY_OBJECT_REFS = Boolean.getBoolean("L2unreal.lazyObjectRefs");
+    private static final boolean LAZY_PROPERTIES = Boolean.getBoolean("L2unreal.lazyProperties");
+    private static final CacheStrength OBJECT_CACHE = objectCache();
+
+    private static CacheStrength objectCache() {
+        String value = System.getProperty("L2unreal.objectCache", CacheStrength.STRONG.name());
+        try {
+            return CacheStrength.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warning(() -> "Unknown L2unreal.objectCache: " + value);
+            return CacheStrength.STRONG;
+        }
+    }
 
     private static int loadThreadStackSize() {
         try {
-            return Integer.parseInt(System.getProperty("L2unreal.loadThreadStackSize", "8000000"));
+            return Integer.parseInt(System.getProperty("L2unreal.loadThreadStackSize", "0"));
         } catch (NumberFormatException e) {
             return 0;
         }
     }
 
+    private static int loadThreads() {
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty("L2unreal.loadThreads", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        } catch (NumberFormatException e) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+    }
+
     public static final String unrealClassesPackage = "acmi.l2.clientmod.unreal";
 
-    public static final Predicate<String> IS_STRUCT = c -> c.equalsIgnoreCase("Core.Struct") ||
-            c.equalsIgnoreCase("Core.Function") ||
-            c.equalsIgnoreCase("Core.State") ||
-            c.equalsIgnoreCase("Core.Class");
+    /**
+     * Only struct class names, lookups don't add names.
+     */
+    private static final NameInterner CORE_CLASSES = new NameInterner();
+    private static final int CORE_STRUCT = CORE_CLASSES.id("Core.Struct");
+    private static final int CORE_FUNCTION = CORE_CLASSES.id("Core.Function");
+    private static final int CORE_STATE = CORE_CLASSES.id("Core.State");
+    private static final int CORE_CLASS = CORE_CLASSES.id("Core.Class");
+
+    public static final Predicate<String> IS_STRUCT = c -> {
+        int id = CORE_CLASSES.find(c);
+        return id == CORE_STRUCT ||
+                id == CORE_FUNCTION ||
+                id == CORE_STATE ||
+                id == CORE_CLASS;
+    };
 
-    private final Map<String, Object> objects = new HashMap<>();
-    private final Map<Integer, acmi.l2.clientmod.unreal.core.Function> nativeFunctions = new HashMap<>();
-    private final ObservableSet<String> loaded = new ObservableSetWrapper<>(new HashSet<>());
+    /**
+     * Full names of objects and classes used as map keys.
+     */
+    private final NameInterner names = new NameInterner();
+    /**
+     * Values are objects or {@link CachedObject} references to them.
+     */
+    private final Map<Long, java.lang.Object> objects = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collectedObjects = new ReferenceQueue<>();
+    private final ConcurrentMap<Long, LoadTask> loading = new ConcurrentHashMap<>();
+    /**
+     * Guards load groups and waiting threads, a lock instead of monitor doesn't pin virtual loader threads.
+     */
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final Condition loadProgress = loadLock.newCondition();
+    private final Map<Thread, LoadTask> waitingFor = new HashMap<>();
+    private final ThreadLocal<LoadContext> loadContext = new ThreadLocal<>();
+    private final Map<Integer, acmi.l2.clientmod.unreal.core.Function> nativeFunctions = new ConcurrentHashMap<>();
+    private final Set<Integer> classPropertiesLoaded = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, List<ClassPropertiesLoad>> classPropertiesWaiters = new HashMap<>();
+    private final Map<Class<?>, Serializer<?, UnrealRuntimeContext>> serializers = new ConcurrentHashMap<>();
+    private final Map<Integer, Class<? extends Object>> javaClasses = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Supplier<java.lang.Object>> instantiators = new ConcurrentHashMap<>();
+    private final Map<Long, Struct[]> structTrees = new ConcurrentHashMap<>();
+    private final Map<Integer, StructLayout> structLayouts = new ConcurrentHashMap<>();
+
+    /**
+     * Object references are not loaded until the referenced object is requested or {@link #resolve(Object)}d.
+     */
+    @Getter
+    @Setter
+    private volatile boolean lazyObjectRefs = LAZY_OBJECT_REFS;
+
+    /**
+     * Properties are decoded on first access, see {@link PropertiesUtil#readProperties(ObjectInput, String, List)}.
+     */
+    @Getter
+    @Setter
+    private volatile boolean lazyProperties = LAZY_PROPERTIES;
+
+    /**
+     * Reference strength of cached objects, affects objects loaded after change.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private volatile CacheStrength objectCacheStrength = OBJECT_CACHE;
 
     @Getter
     private final Env environment;
 
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor(r -> new Thread(null, r, LOAD_THREAD_NAME, LOAD_THREAD_STACK_SIZE) {{
-        setDaemon(true);
-    }});
+    private volatile ClassHierarchy classHierarchy = createClassHierarchy();
+
+    /**
+     * Number of loaded objects with not deserialized trailing data, and total size of that data.
+     */
+    private final AtomicLong unreadObjects = new AtomicLong();
+    private final AtomicLong unreadBytes = new AtomicLong();
+
+    /**
+     * Stack size of platform loader threads started after change, {@code 0} uses the JVM default.
+     */
+    @Getter
+    @Setter
+    private volatile long loadThreadStackSize = LOAD_THREAD_STACK_SIZE;
+
+    private final boolean virtualLoadThreads = "virtual".equalsIgnoreCase(System.getProperty("L2unreal.loader"));
+    private final AtomicInteger loadThreadCount = new AtomicInteger();
+    private final ExecutorService executorService = createExecutorService();
+    private final Executor loader = command -> executorService.execute(() -> {
+        if (loadContext.get() == null) {
+            loadContext.set(new LoadContext());
+        }
+        command.run();
+    });
+
+    /**
+     * Loader threads are either a bounded pool of platform threads, stopped after a minute idle so that unused
+     * factories don't keep them, or, with {@code -DL2unreal.loader=virtual} on a JVM that supports it,
+     * a virtual thread per load.
+     */
+    private ExecutorService createExecutorService() {
+        if (virtualLoadThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warning(() -> "Virtual threads are not supported, using platform loader threads");
+            }
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(LOAD_THREADS, LOAD_THREADS, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                r -> new Thread(null, r, LOAD_THREAD_NAME + "-" + loadThreadCount.incrementAndGet(), loadThreadStackSize) {{
+                    setDaemon(true);
+                }});
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
     public UnrealSerializerFactory(@NonNull Env environment) {
         this.environment = new EnvironmentWrapper(environment);
@@ -95,46 +230,399 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
                 UnrealRuntimeContext context = objectInput.getContext();
                 int objRef = objectInput.readCompactInt();
                 UnrealPackage.Entry entry = context.getUnrealPackage().objectReference(objRef);
-                return getOrCreateObject(entry);
+                return getOrCreateReference(entry);
             };
         }
         return super.createInstantiator(clazz);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Serializer<T, UnrealRuntimeContext> forClass(Class<T> clazz) {
+        Serializer<T, UnrealRuntimeContext> serializer = (Serializer<T, UnrealRuntimeContext>) serializers.get(clazz);
+        if (serializer == null) {
+            // super implementation is not thread safe and may call forClass recursively
+            synchronized (serializers) {
+                serializer = (Serializer<T, UnrealRuntimeContext>) serializers.get(clazz);
+                if (serializer == null) {
+                    serializer = super.forClass(clazz);
+                    serializers.put(clazz, serializer);
+                }
+            }
+        }
+        return serializer;
+    }
+
+    /**
+     * Each object is loaded once, concurrent callers wait for the first one.
+     * Threads whose loads reference each other are joined into one load group, objects of a group are published
+     * together when all its threads are done.
+     */
     public Object getOrCreateObject(UnrealPackage.Entry packageLocalEntry) throws UncheckedIOException {
         if (packageLocalEntry == null) {
             return null;
         }
 
-        String key = keyFor(packageLocalEntry);
-        if (!objects.containsKey(key)) {
-            log.finest(() -> String.format("Loading %s", packageLocalEntry));
+        long key = keyFor(packageLocalEntry);
+        Object obj = getCached(key);
+        if (obj != null) {
+            return obj;
+        }
 
-            UnrealPackage.ExportEntry entry;
-            try {
-                entry = resolveExportEntry(packageLocalEntry).orElse(null);
-                if (entry != null) {
-                    Class<? extends Object> clazz = getClass(entry.getFullClassName());
-                    Object obj = clazz.newInstance();
-                    objects.put(key, obj);
-                    Runnable load = () -> load(obj, entry);
-                    if (LOAD_THREAD_NAME.equals(Thread.currentThread().getName())) {
-                        load.run();
-                    } else {
-                        executorService.submit(load).get();
+        LoadTask task = loadTask(key, packageLocalEntry);
+        if (task == null) {
+            return getCached(key);
+        }
+
+        return loadNow(task);
+    }
+
+    /**
+     * Loads object allocated as lazy reference, same as {@link Object#resolve()}.
+     *
+     * @return obj
+     */
+    public <T extends Object> T resolve(T obj) throws UncheckedIOException {
+        if (obj != null) {
+            obj.resolve();
+        }
+        return obj;
+    }
+
+    private Object loadNow(LoadTask task) {
+        LoadContext context = loadContext.get();
+        Thread owner = task.owner.get();
+        if (context == null) {
+            if (owner == null) {
+                loader.execute(task);
+            }
+        } else if (owner == null) {
+            loadAll(context, task);
+        } else if (owner == Thread.currentThread()) {
+            // object is being loaded by this thread, make sure its references are loaded
+            drain(context, context.queue);
+        }
+        return await(task);
+    }
+
+    /**
+     * Object references met while loading are queued instead of being loaded recursively.
+     *
+     * @return allocated, probably not loaded yet, instance
+     */
+    private Object getOrCreateReference(UnrealPackage.Entry packageLocalEntry) throws UncheckedIOException {
+        return getOrCreateReference(packageLocalEntry, lazyObjectRefs);
+    }
+
+    /**
+     * @param lazy object is loaded when resolved instead of being queued
+     */
+    private Object getOrCreateReference(UnrealPackage.Entry packageLocalEntry, boolean lazy) throws UncheckedIOException {
+        if (packageLocalEntry == null) {
+            return null;
+        }
+
+        LoadContext context = loadContext.get();
+        if (context == null || context.depth == 0) {
+            return getOrCreateObject(packageLocalEntry);
+        }
+
+        long key = keyFor(packageLocalEntry);
+        Object obj = getCached(key);
+        if (obj != null) {
+            return obj;
+        }
+
+        LoadTask task = loadTask(key, packageLocalEntry);
+        if (task == null) {
+            return getCached(key);
+        }
+
+        if (lazy) {
+            task.obj.loader = () -> loadNow(task);
+            if (task.future.isDone()) {
+                task.obj.loader = null;
+            }
+        } else if (task.owner.get() != Thread.currentThread()) {
+            context.queue.add(task);
+        }
+        return task.obj;
+    }
+
+    /**
+     * Loads object on loader threads.
+     */
+    public CompletableFuture<Object> getOrCreateObjectAsync(UnrealPackage.Entry packageLocalEntry) {
+        if (packageLocalEntry == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Object obj = getCached(keyFor(packageLocalEntry));
+        if (obj != null) {
+            return CompletableFuture.completedFuture(obj);
+        }
+
+        return CompletableFuture.supplyAsync(() -> getOrCreateObject(packageLocalEntry), loader);
+    }
+
+    /**
+     * @return pending task for key or null if object is already available
+     */
+    private LoadTask loadTask(long key, UnrealPackage.Entry packageLocalEntry) {
+        LoadTask task = loading.get(key);
+        if (task != null) {
+            return task;
+        }
+
+        log.finest(() -> String.format("Loading %s", packageLocalEntry));
+
+        try {
+            UnrealPackage.ExportEntry entry = resolveExportEntry(packageLocalEntry).orElse(null);
+            if (entry == null) {
+                create(packageLocalEntry.getObjectFullName(), packageLocalEntry.getFullClassName());
+                return null;
+            }
+
+            Class<? extends Object> clazz = getClass(entry.getFullClassName());
+            Object obj = newInstance(clazz);
+            obj.entry = entry;
+            task = new LoadTask(key, obj, entry);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        LoadTask existing = loading.putIfAbsent(key, task);
+        if (existing != null) {
+            return existing;
+        }
+        if (getCached(key) != null) {
+            // completed while task was being created
+            loading.remove(key, task);
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * Loads task and everything it references using new queue.
+     */
+    private void loadAll(LoadContext context, LoadTask task) {
+        ArrayDeque<LoadTask> outer = context.queue;
+        context.queue = new ArrayDeque<>();
+        context.queue.add(task);
+        try {
+            drain(context, context.queue);
+        } finally {
+            context.queue = outer;
+        }
+    }
+
+    private void drain(LoadContext context, ArrayDeque<LoadTask> queue) {
+        Thread current = Thread.currentThread();
+        if (context.depth++ == 0) {
+            context.group = new LoadGroup();
+        }
+        try {
+            LoadTask task;
+            while ((task = queue.poll()) != null) {
+                if (task.owner.compareAndSet(null, current)) {
+                    loadLock.lock();
+                    try {
+                        task.group = context.group;
+                        context.group.root().loaded.add(task);
+                    } finally {
+                        loadLock.unlock();
+                    }
+                    try {
+                        load(task.obj, task.entry);
+                    } catch (Throwable e) {
+                        task.failure = e;
                     }
-                } else {
-                    create(packageLocalEntry.getObjectFullName(), packageLocalEntry.getFullClassName());
+                } else if (task.owner.get() != current) {
+                    waitFor(task);
                 }
-            } catch (Throwable e) {
-                throw new IllegalStateException(e);
             }
+        } finally {
+            if (--context.depth == 0) {
+                publish(context);
+            }
+        }
+    }
+
+    /**
+     * Objects loaded by a group become visible to other threads together, when all their references are loaded.
+     * The last thread of group publishes them, others wait for it.
+     */
+    private void publish(LoadContext context) {
+        readPendingClassProperties(context);
+
+        LoadGroup group;
+        loadLock.lock();
+        try {
+            group = context.group.root();
+            context.group = null;
+            if (--group.threads > 0) {
+                while (!group.root().published) {
+                    loadProgress.awaitUninterruptibly();
+                }
+                return;
+            }
+        } finally {
+            loadLock.unlock();
+        }
+
+        for (LoadTask task : group.loaded) {
+            if (task.failure == null) {
+                putCached(task.key, task.obj);
+                task.future.complete(task.obj);
+            } else {
+                log.log(Level.WARNING, task.failure, () -> String.format("Couldn't load %s", task.entry));
+                task.future.completeExceptionally(task.failure);
+            }
+            loading.remove(task.key, task);
+            task.obj.loader = null;
+        }
+        loadLock.lock();
+        try {
+            group.published = true;
+            loadProgress.signalAll();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until task is published or joins its load group if waiting would deadlock.
+     */
+    private void waitFor(LoadTask task) {
+        Thread current = Thread.currentThread();
+        LoadContext context = loadContext.get();
+        LoadGroup group = context != null ? context.group : null;
+        loadLock.lock();
+        try {
+            while (!task.future.isDone()) {
+                if (group != null && joinCycle(group, task)) {
+                    return;
+                }
+                waitingFor.put(current, task);
+                loadProgress.awaitUninterruptibly();
+            }
+        } finally {
+            waitingFor.remove(current);
+            loadLock.unlock();
         }
-        return objects.get(key);
     }
 
-    private String keyFor(UnrealPackage.Entry entry) {
-        return (entry.getObjectFullName() + "_" + entry.getFullClassName()).toLowerCase();
+    /**
+     * Follows the chain of threads waiting for each other starting from task owner. If it leads back to group,
+     * all groups of the chain are merged.
+     *
+     * @return true if task belongs to group now
+     */
+    private boolean joinCycle(LoadGroup group, LoadTask task) {
+        List<LoadGroup> chain = new ArrayList<>();
+        for (LoadTask t = task; t != null && !t.future.isDone(); t = waitingFor.get(t.owner.get())) {
+            LoadGroup g = t.group;
+            if (g == null) {
+                return false;
+            }
+            if (g.root() == group.root()) {
+                LoadGroup root = group.root();
+                for (LoadGroup other : chain) {
+                    other = other.root();
+                    if (other != root) {
+                        other.parent = root;
+                        root.threads += other.threads;
+                        root.loaded.addAll(other.loaded);
+                        other.loaded.clear();
+                        root.classProperties.addAll(other.classProperties);
+                        other.classProperties.clear();
+                    }
+                }
+                loadProgress.signalAll();
+                return true;
+            }
+            chain.add(g);
+        }
+        return false;
+    }
+
+    /**
+     * @return loaded object, or partially loaded one if it is being loaded by this thread or its load group
+     */
+    private Object await(LoadTask task) {
+        if (task.owner.get() != Thread.currentThread()) {
+            waitFor(task);
+        }
+
+        if (task.future.isDone()) {
+            try {
+                return task.future.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if (task.failure != null) {
+            throw new IllegalStateException(task.failure);
+        }
+        return task.obj;
+    }
+
+    private Object getCached(long key) {
+        java.lang.Object value = objects.get(key);
+        return (Object) (value instanceof Reference ? ((Reference<?>) value).get() : value);
+    }
+
+    private void putCached(long key, Object obj) {
+        for (Reference<?> ref; (ref = collectedObjects.poll()) != null; ) {
+            objects.remove(((CachedObject) ref).getKey(), ref);
+        }
+
+        switch (objectCacheStrength) {
+            case SOFT:
+                objects.put(key, new SoftCachedObject(key, obj, collectedObjects));
+                break;
+            case WEAK:
+                objects.put(key, new WeakCachedObject(key, obj, collectedObjects));
+                break;
+            default:
+                objects.put(key, obj);
+        }
+    }
+
+    /**
+     * Drops objects of package, they will be loaded again on next request.
+     */
+    public void unloadPackage(@NonNull String name) {
+        log.fine(() -> "Unload " + name);
+
+        objects.values().removeIf(value -> {
+            Object obj = (Object) (value instanceof Reference ? ((Reference<?>) value).get() : value);
+            return obj == null || isInPackage(obj.getFullName(), name);
+        });
+        loading.values().removeIf(task -> task.owner.get() == null && isInPackage(task.entry.getObjectFullName(), name));
+        nativeFunctions.values().removeIf(func -> isInPackage(func.getFullName(), name));
+        javaClasses.keySet().removeIf(id -> isInPackage(names.name(id), name));
+        synchronized (classPropertiesWaiters) {
+            classPropertiesLoaded.removeIf(id -> isInPackage(names.name(id), name));
+            classPropertiesWaiters.values().removeIf(waiters -> {
+                waiters.removeIf(load -> isInPackage(names.name(load.classId), name));
+                return waiters.isEmpty();
+            });
+        }
+        classHierarchy = createClassHierarchy();
+        structTrees.clear();
+        structLayouts.clear();
+    }
+
+    private static boolean isInPackage(String fullName, String packageName) {
+        int length = packageName.length();
+        return fullName.regionMatches(true, 0, packageName, 0, length) &&
+                (fullName.length() == length || fullName.charAt(length) == '.');
+    }
+
+    private long keyFor(UnrealPackage.Entry entry) {
+        return names.key(entry.getObjectFullName(), entry.getFullClassName());
     }
 
     private void create(String objName, String objClass) {
@@ -161,7 +649,7 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
                 return null;
             }
         };
-        objects.put(keyFor(entry), new acmi.l2.clientmod.unreal.core.Class() {
+        putCached(keyFor(entry), new acmi.l2.clientmod.unreal.core.Class() {
             @Override
             public String getFullName() {
                 return objName;
@@ -187,14 +675,49 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
             return Optional.empty();
         }
 
-        return getExportEntry(entry.getObjectFullName(), clazz -> clazz.equalsIgnoreCase(entry.getFullClassName()));
+        String className = entry.getFullClassName();
+        int classId = names.find(className);
+        return getExportEntry(entry.getObjectFullName(), classId != NameInterner.NOT_FOUND ?
+                clazz -> names.find(clazz) == classId :
+                className::equalsIgnoreCase);
     }
 
     private Optional<UnrealPackage.ExportEntry> getExportEntry(String objName, Predicate<String> objClass) {
         return environment.getExportEntry(objName, objClass);
     }
 
+    /**
+     * Unreal classes without java implementation are mapped to java class of nearest implemented superclass.
+     */
     private Class<? extends Object> getClass(String className) throws UncheckedIOException {
+        List<Integer> ids = new ArrayList<>();
+        Class<? extends Object> clazz;
+        for (String name = className; ; ) {
+            int id = names.id(name);
+            clazz = javaClasses.get(id);
+            if (clazz != null) {
+                break;
+            }
+
+            ids.add(id);
+            clazz = findJavaClass(name);
+            if (clazz != null) {
+                break;
+            }
+
+            name = getExportEntry(name, c -> CORE_CLASSES.find(c) == CORE_CLASS)
+                    .map(UnrealPackage.ExportEntry::getObjectSuperClass)
+                    .map(UnrealPackage.Entry::getObjectFullName)
+                    .orElse("Core.Object");
+        }
+
+        for (int id : ids) {
+            javaClasses.put(id, clazz);
+        }
+        return clazz;
+    }
+
+    private Class<? extends Object> findJavaClass(String className) {
         Class<?> clazz = null;
         try {
             String javaClassName = unrealClassesPackage + "." + unrealClassNameToJavaClassName(className);
@@ -207,12 +730,42 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
             Class<?> clazzLocal = clazz;
             log.warning(() -> String.format("%s is not subclass of %s", clazzLocal, Object.class));
         }
+        return null;
+    }
+
+    private Object newInstance(Class<? extends Object> clazz) {
+        return (Object) instantiators.computeIfAbsent(clazz, UnrealSerializerFactory::instantiator).get();
+    }
+
+    private static Supplier<java.lang.Object> instantiator(Class<?> clazz) {
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(clazz, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(java.lang.Object.class));
+        } catch (ReflectiveOperationException e) {
+            return () -> {
+                try {
+                    Constructor<?> declared = clazz.getDeclaredConstructor();
+                    declared.setAccessible(true);
+                    return declared.newInstance();
+                } catch (InvocationTargetException e1) {
+                    throw new UnrealException("Couldn't instantiate " + clazz.getName(), e1.getCause());
+                } catch (ReflectiveOperationException | RuntimeException e1) {
+                    throw new UnrealException("Couldn't instantiate " + clazz.getName(), e1);
+                }
+            };
+        }
 
-        return getClass(getExportEntry(className, c -> c.equalsIgnoreCase("Core.Class"))
-                .map(e -> e.getObjectSuperClass().getObjectFullName())
-                .orElse("Core.Object"));
-//        Object object = getOrCreateObject(className, c -> c.equalsIgnoreCase("Core.Class"));
-//        return getClass(object.entry.getObjectSuperClass().getObjectFullName());
+        return () -> {
+            try {
+                return (java.lang.Object) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UnrealException("Couldn't instantiate " + clazz.getName(), e);
+            }
+        };
     }
 
     private String unrealClassNameToJavaClassName(String className) {
@@ -231,7 +784,7 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
         } else if (Object.class.isAssignableFrom(type) &&
                 Objects.nonNull(getAnnotation.apply(ObjectRef.class))) {
             read.add((object, dataInput) -> setter.accept(object, () ->
-                    getOrCreateObject(dataInput.getContext().getUnrealPackage().objectReference(dataInput.readCompactInt()))));
+                    getOrCreateReference(dataInput.getContext().getUnrealPackage().objectReference(dataInput.readCompactInt()))));
             write.add((object, dataOutput) -> {
                 Object obj = (Object) getter.apply(object);
                 dataOutput.writeCompactInt(obj == null || obj.entry == null ? 0 : dataOutput.getContext().getUnrealPackage().objectReferenceByName(obj.entry.getObjectFullName(), c -> c.equalsIgnoreCase(obj.entry.getFullClassName())));
@@ -269,8 +822,8 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
     }
 
     private void load(Object obj, UnrealPackage.ExportEntry entry) {
-        ObjectInput<UnrealRuntimeContext> input = new ObjectInputStream<UnrealRuntimeContext>(
-                new ByteArrayInputStream(entry.getObjectRawDataExternally()),
+        ByteBufferObjectInput<UnrealRuntimeContext> input = new ByteBufferObjectInput<UnrealRuntimeContext>(
+                environment.getObjectRawData(entry),
                 entry.getUnrealPackage().getFile().getCharset(),
                 entry.getOffset(),
                 this,
@@ -301,56 +854,144 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
             }
         }
 
-        if (entry.getFullClassName().equalsIgnoreCase("Core.Class")) {
-            Runnable loadProps = () -> {
-                obj.properties.addAll(PropertiesUtil.readProperties(input, obj.getFullName()));
-                loaded.add(entry.getObjectFullName());
+        if (CORE_CLASSES.find(entry.getFullClassName()) == CORE_CLASS) {
+            ClassPropertiesLoad load = new ClassPropertiesLoad(names.id(entry.getObjectFullName()), () -> {
+                PropertiesUtil.readProperties(input, obj.getFullName(), obj.properties);
                 log.finest(() -> entry.getObjectFullName() + " properties loaded");
-            };
-            if (entry.getObjectSuperClass() != null) {
-                String superClass = entry.getObjectSuperClass().getObjectFullName();
-
-                if (loaded.contains(superClass)) {
-                    loadProps.run();
-                } else {
-                    AtomicInteger ai = new AtomicInteger(0);
-                    Consumer<InvalidationListener> c = il -> {
-                        if (loaded.contains(superClass) && ai.getAndIncrement() == 0) {
-                            loaded.removeListener(il);
-                            loadProps.run();
-                        }
-                    };
-                    InvalidationListener il = new InvalidationListener() {
-                        @Override
-                        public void invalidated(acmi.l2.clientmod.unreal.util.Observable observable) {
-                            c.accept(this);
-                        }
-                    };
-                    loaded.addListener(il);
-                    c.accept(il);
+            });
+            UnrealPackage.Entry superClass = entry.getObjectSuperClass();
+            // superclass is queued, not loaded recursively, its properties are read first
+            getOrCreateReference(superClass, false);
+            scheduleClassProperties(load, superClass != null ? names.id(superClass.getObjectFullName()) : NameInterner.NOT_FOUND);
+        }
+
+        if (!(obj instanceof acmi.l2.clientmod.unreal.core.Class)) {
+            int size = input.remaining();
+            if (size > 0) {
+                int position = input.getPosition();
+                input.skip(size);
+                obj.unreadData = input.slice(position).asReadOnlyBuffer();
+                unreadObjects.incrementAndGet();
+                unreadBytes.addAndGet(size);
+                log.finer(() -> obj + " " + size + " bytes ignored");
+            }
+        }
+
+        log.finest(() -> entry.getObjectFullName() + " loaded");
+    }
+
+    /**
+     * Class default properties are read after superclass ones, in the load group of class.
+     */
+    private void scheduleClassProperties(ClassPropertiesLoad load, int superClassId) {
+        if (superClassId != NameInterner.NOT_FOUND) {
+            synchronized (classPropertiesWaiters) {
+                if (!classPropertiesLoaded.contains(superClassId)) {
+                    classPropertiesWaiters.computeIfAbsent(superClassId, k -> new ArrayList<>()).add(load);
+                    return;
                 }
-            } else {
-                loadProps.run();
             }
         }
 
-        if (!(obj instanceof acmi.l2.clientmod.unreal.core.Class)) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        readClassProperties(load);
+    }
+
+    /**
+     * Subclasses waiting for load are submitted to loader threads joining load group of current thread.
+     */
+    private void readClassProperties(ClassPropertiesLoad load) {
+        try {
+            load.properties.run();
+        } finally {
+            List<ClassPropertiesLoad> waiters;
+            synchronized (classPropertiesWaiters) {
+                classPropertiesLoaded.add(load.classId);
+                waiters = classPropertiesWaiters.remove(load.classId);
+            }
+            if (waiters != null) {
+                LoadGroup group;
+                loadLock.lock();
+                try {
+                    group = loadContext.get().group.root();
+                    group.classProperties.addAll(waiters);
+                } finally {
+                    loadLock.unlock();
+                }
+                for (ClassPropertiesLoad waiter : waiters) {
+                    loader.execute(() -> readClassProperties(group, waiter));
+                }
+            }
+        }
+    }
+
+    private void readClassProperties(LoadGroup group, ClassPropertiesLoad load) {
+        LoadContext context = loadContext.get();
+        loadLock.lock();
+        try {
+            if (load.claimed) {
+                return;
+            }
+            load.claimed = true;
+            context.group = group.root();
+            context.group.threads++;
+        } finally {
+            loadLock.unlock();
+        }
+        context.queue = new ArrayDeque<>();
+        context.depth++;
+        try {
+            readClassPropertiesLogged(load);
+            drain(context, context.queue);
+        } finally {
+            if (--context.depth == 0) {
+                publish(context);
+            }
+        }
+    }
+
+    /**
+     * Reads class properties submitted by group but not started by loader threads yet, as loader threads may be
+     * busy waiting for the group.
+     */
+    private void readPendingClassProperties(LoadContext context) {
+        ArrayDeque<LoadTask> outer = context.queue;
+        while (true) {
+            List<ClassPropertiesLoad> loads = new ArrayList<>();
+            loadLock.lock();
             try {
-                //noinspection InfiniteLoopStatement
-                while (true) {
-                    baos.write(input.readUnsignedByte());
+                LoadGroup group = context.group.root();
+                for (ClassPropertiesLoad load : group.classProperties) {
+                    if (!load.claimed) {
+                        load.claimed = true;
+                        loads.add(load);
+                    }
                 }
-            } catch (UncheckedIOException ignore) {
+                group.classProperties.clear();
+            } finally {
+                loadLock.unlock();
+            }
+            if (loads.isEmpty()) {
+                break;
             }
 
-            obj.unreadBytes = baos.toByteArray();
-            if (obj.unreadBytes.length > 0) {
-                log.warning(() -> obj + " " + obj.unreadBytes.length + " bytes ignored");
+            context.queue = new ArrayDeque<>();
+            context.depth++;
+            try {
+                loads.forEach(this::readClassPropertiesLogged);
+                drain(context, context.queue);
+            } finally {
+                context.depth--;
+                context.queue = outer;
             }
         }
+    }
 
-        log.finest(() -> entry.getObjectFullName() + " loaded");
+    private void readClassPropertiesLogged(ClassPropertiesLoad load) {
+        try {
+            readClassProperties(load);
+        } catch (Throwable e) {
+            log.log(Level.WARNING, e, () -> "Couldn't read " + names.name(load.classId) + " properties");
+        }
     }
 
     public Optional<Struct> getStruct(String name) {
@@ -385,42 +1026,208 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
         return null;
     }
 
-    private final Map<String, Boolean> isSubclassCache = new HashMap<>();
+    private ClassHierarchy createClassHierarchy() {
+        return new ClassHierarchy(names, this::getSuperClass, () -> environment.listFiles()
+                .map(environment::getPackage)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .flatMap(up -> up.getExportTable().stream())
+                .filter(entry -> CORE_CLASSES.find(entry.getFullClassName()) == CORE_CLASS));
+    }
 
     public boolean isSubclass(@NonNull String parent, @NonNull String child) {
-        if (parent.equalsIgnoreCase(child)) {
-            return true;
+        return classHierarchy.isSubclass(parent, child);
+    }
+
+    /**
+     * First call scans all packages of environment.
+     */
+    public List<String> getDirectSubclasses(@NonNull String clazz) {
+        return classHierarchy.getDirectSubclasses(clazz);
+    }
+
+    /**
+     * @return struct and its superstructs, root first
+     */
+    public <T extends Struct> List<T> getStructTree(@NonNull T struct) {
+        if (struct.entry == null) {
+            return new ArrayList<>();
         }
 
-        String k = parent + "@" + child;
-        synchronized (isSubclassCache) {
-            if (!isSubclassCache.containsKey(k)) {
-                child = getSuperClass(child);
-                isSubclassCache.put(k, child != null && isSubclass(parent, child));
+        long key = keyFor(struct.entry);
+        Struct[] tree = structTrees.get(key);
+        if (tree == null) {
+            List<Struct> list = new ArrayList<>();
+            boolean complete = true;
+            for (UnrealPackage.ExportEntry entry = struct.entry; entry != null; entry = resolveExportEntry(entry.getObjectSuperClass()).orElse(null)) {
+                Struct s = (Struct) getOrCreateObject(entry);
+                complete &= isPublished(s);
+                list.add(s);
+            }
+            Collections.reverse(list);
+
+            tree = list.toArray(new Struct[0]);
+            if (complete) {
+                structTrees.put(key, tree);
             }
-            return isSubclassCache.get(k);
         }
+
+        return new ArrayList<>((List<T>) Arrays.asList(tree));
     }
 
-    public <T extends Struct> List<T> getStructTree(@NonNull T struct) {
-        List<T> list = new ArrayList<>();
+    /**
+     * Layouts of structs being loaded are not cached.
+     */
+    public StructLayout getStructLayout(@NonNull String structName) {
+        int id = names.find(structName);
+        StructLayout layout = id != NameInterner.NOT_FOUND ? structLayouts.get(id) : null;
+        if (layout != null) {
+            return layout;
+        }
+
+        List<Property> properties = new ArrayList<>();
+        boolean complete = true;
+        for (String name = structName; name != null; ) {
+            Struct struct = getStruct(name).orElse(null);
+            if (struct == null) {
+                complete = false;
+                break;
+            }
+            complete &= isPublished(struct);
+            for (Field f = resolve(struct.child); f != null; f = resolve(f.next)) {
+                if (f instanceof Property) {
+                    properties.add((Property) f);
+                }
+            }
+            name = struct.entry != null && struct.entry.getObjectSuperClass() != null ?
+                    struct.entry.getObjectSuperClass().getObjectFullName() : null;
+        }
 
-        for (UnrealPackage.ExportEntry entry = struct.entry; entry != null; entry = resolveExportEntry(entry.getObjectSuperClass()).orElse(null)) {
-            list.add((T) getOrCreateObject(entry));
+        layout = new StructLayout(properties.toArray(new Property[0]));
+        if (complete) {
+            // struct is loaded, its name is interned
+            structLayouts.put(names.id(structName), layout);
         }
+        return layout;
+    }
+
+    private boolean isPublished(Object obj) {
+        return obj.entry != null && getCached(keyFor(obj.entry)) == obj;
+    }
 
-        Collections.reverse(list);
+    public long getUnreadObjectCount() {
+        return unreadObjects.get();
+    }
 
-        return list;
+    public long getUnreadByteCount() {
+        return unreadBytes.get();
     }
 
     public Optional<acmi.l2.clientmod.unreal.core.Function> getNativeFunction(int index) {
         return Optional.ofNullable(nativeFunctions.get(index));
     }
 
-    private static class EnvironmentWrapper implements Env {
+    private final class LoadTask implements Runnable {
+        private final long key;
+        private final Object obj;
+        private final UnrealPackage.ExportEntry entry;
+        private final AtomicReference<Thread> owner = new AtomicReference<>();
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private Throwable failure;
+        private LoadGroup group;
+
+        private LoadTask(long key, Object obj, UnrealPackage.ExportEntry entry) {
+            this.key = key;
+            this.obj = obj;
+            this.entry = entry;
+        }
+
+        @Override
+        public void run() {
+            if (owner.get() == null) {
+                loadAll(loadContext.get(), this);
+            }
+        }
+    }
+
+    public enum CacheStrength {
+        STRONG,
+        SOFT,
+        WEAK
+    }
+
+    private interface CachedObject {
+        long getKey();
+    }
+
+    private static final class SoftCachedObject extends SoftReference<Object> implements CachedObject {
+        @Getter
+        private final long key;
+
+        private SoftCachedObject(long key, Object obj, ReferenceQueue<Object> queue) {
+            super(obj, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class WeakCachedObject extends WeakReference<Object> implements CachedObject {
+        @Getter
+        private final long key;
+
+        private WeakCachedObject(long key, Object obj, ReferenceQueue<Object> queue) {
+            super(obj, queue);
+            this.key = key;
+        }
+    }
+
+    private static final class ClassPropertiesLoad {
+        private final int classId;
+        private final Runnable properties;
+        /**
+         * Guarded by {@code loadLock}.
+         */
+        private boolean claimed;
+
+        private ClassPropertiesLoad(int classId, Runnable properties) {
+            this.classId = classId;
+            this.properties = properties;
+        }
+    }
+
+    private static final class LoadContext {
+        private ArrayDeque<LoadTask> queue;
+        private LoadGroup group;
+        private int depth;
+    }
+
+    /**
+     * Threads loading objects that reference each other, guarded by {@code loadLock}.
+     */
+    private static final class LoadGroup {
+        private final List<LoadTask> loaded = new ArrayList<>();
+        private final List<ClassPropertiesLoad> classProperties = new ArrayList<>();
+        private int threads = 1;
+        private boolean published;
+        private LoadGroup parent;
+
+        private LoadGroup root() {
+            LoadGroup root = this;
+            while (root.parent != null) {
+                root = root.parent;
+            }
+            return root;
+        }
+    }
+
+    private class EnvironmentWrapper implements Env {
+        /**
+         * Embedded packages, names are also resource and {@link #adds} keys.
+         */
+        private final String[] customPackages = {"Core", "Engine"};
+
         private final Env environment;
-        private final Map<String, UnrealPackage> adds = new HashMap<>();
+        private final Map<String, UnrealPackage> adds = new ConcurrentHashMap<>();
+        private final ExportEntryIndex addsEntries = new ExportEntryIndex();
 
         public EnvironmentWrapper(@NonNull Env environment) {
             this.environment = environment;
@@ -441,9 +1248,15 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
             return environment.getPackage(f);
         }
 
+        @Override
+        public ByteBuffer getObjectRawData(@NonNull UnrealPackage.ExportEntry entry) throws UncheckedIOException {
+            return environment.getObjectRawData(entry);
+        }
+
         @Override
         public void markInvalid(String pckg) {
             environment.markInvalid(pckg);
+            unloadPackage(pckg);
         }
 
         @Override
@@ -463,49 +1276,51 @@ public class UnrealSerializerFactory extends ReflectionSerializerFactory<UnrealR
 
         @Override
         public Optional<UnrealPackage.ExportEntry> getExportEntry(@NonNull String fullName, @NonNull Predicate<String> fullClassName) throws UncheckedIOException {
-            String[] path = fullName.split("\\.");
+            int packageEnd = fullName.indexOf('.');
+            getCustomPackage(fullName, packageEnd < 0 ? fullName.length() : packageEnd);
 
-            Optional<UnrealPackage.ExportEntry> entryOptional = appendCustomPackage(Stream.empty(), path[0])
-                    .map(UnrealPackage::getExportTable)
-                    .flatMap(Collection::stream)
-                    .filter(e -> e.getObjectFullName().equalsIgnoreCase(fullName))
-                    .filter(e -> fullClassName.test(e.getFullClassName()))
-                    .findAny();
-            if (entryOptional.isPresent()) {
-                return entryOptional;
+            UnrealPackage.ExportEntry entry = addsEntries.findByFullName(fullName, fullClassName);
+            if (entry != null) {
+                return Optional.of(entry);
             }
 
             return environment.getExportEntry(fullName, fullClassName);
         }
 
         private Stream<UnrealPackage> appendCustomPackage(Stream<UnrealPackage> stream, String name) {
-            if (!name.equalsIgnoreCase("Engine") && !name.equalsIgnoreCase("Core")) {
-                return stream;
-            }
-
-            name = canonizeName(name);
-            if (!adds.containsKey(name)) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                try (InputStream is = getClass().getResourceAsStream("/" + name + ".u")) {
-                    byte[] buf = new byte[1024];
-                    int r;
-                    while ((r = is.read(buf)) != -1) {
-                        baos.write(buf, 0, r);
-                    }
-                } catch (IOException e) {
-                    throw new UnrealException(e);
-                }
+            UnrealPackage up = getCustomPackage(name, name.length());
+            return up != null ? Stream.concat(Stream.of(up), stream) : stream;
+        }
 
-                try (UnrealPackage up = new UnrealPackage(new RandomAccessMemory(name, baos.toByteArray(), UnrealPackage.getDefaultCharset()))) {
-                    adds.put(name, up);
+        /**
+         * @param length length of package name at the start of {@code name}
+         */
+        private UnrealPackage getCustomPackage(String name, int length) {
+            for (String customPackage : customPackages) {
+                if (customPackage.length() == length && name.regionMatches(true, 0, customPackage, 0, length)) {
+                    UnrealPackage up = adds.get(customPackage);
+                    return up != null ? up : adds.computeIfAbsent(customPackage, this::loadCustomPackage);
                 }
             }
-
-            return Stream.concat(Stream.of(adds.get(name)), stream);
+            return null;
         }
 
-        private String canonizeName(String name) {
-            return name.substring(0, 1).toUpperCase() + name.substring(1).toLowerCase();
+        private UnrealPackage loadCustomPackage(String name) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (InputStream is = getClass().getResourceAsStream("/" + name + ".u")) {
+                byte[] buf = new byte[1024];
+                int r;
+                while ((r = is.read(buf)) != -1) {
+                    baos.write(buf, 0, r);
+                }
+            } catch (IOException e) {
+                throw new UnrealException(e);
+            }
+
+            try (UnrealPackage up = new UnrealPackage(new RandomAccessMemory(name, baos.toByteArray(), UnrealPackage.getDefaultCharset()))) {
+                addsEntries.add(name, up);
+                return up;
+            }
         }
     }
 }
@@ -30,8 +30,9 @@ import acmi.l2.clientmod.io.annotation.WriteMethod;
 import acmi.l2.clientmod.unreal.UnrealRuntimeContext;
 import acmi.l2.clientmod.unreal.properties.L2Property;
 import acmi.l2.clientmod.unreal.properties.PropertiesUtil;
+import acmi.l2.clientmod.unreal.properties.PropertyList;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import static acmi.l2.clientmod.io.UnrealPackage.ObjectFlag.HasStack;
@@ -41,9 +42,33 @@ public class Object {
     public transient UnrealPackage.ExportEntry entry;
 
     public StateFrame stateFrame;
-    public final List<L2Property> properties = new ArrayList<>();
-
-    public transient byte[] unreadBytes;
+    public final List<L2Property> properties = new PropertyList();
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    /**
+     * Not deserialized trailing data, a view of package data without copy, {@code null} if there is none.
+     */
+    public transient ByteBuffer unreadData;
+
+    /**
+     * Set while object is a not loaded lazy reference, see {@link #resolve()}.
+     */
+    public transient volatile Runnable loader;
+
+    /**
+     * Loads object allocated as lazy reference with {@code L2unreal.lazyObjectRefs}. Fields of such objects are
+     * empty until resolved, only {@link #entry} and {@link Struct#iterator()} don't need it.
+     *
+     * @return this
+     */
+    public final Object resolve() {
+        Runnable loader = this.loader;
+        if (loader != null) {
+            loader.run();
+        }
+        return this;
+    }
 
     @ReadMethod
     public final void readObject(ObjectInput<UnrealRuntimeContext> input) {
@@ -55,7 +80,7 @@ public class Object {
         }
 
         if (!(this instanceof Class)) {
-            properties.addAll(PropertiesUtil.readProperties(input, this.entry.getFullClassName()));
+            PropertiesUtil.readProperties(input, this.entry.getFullClassName(), properties);
         }
     }
 
@@ -70,6 +95,19 @@ public class Object {
         }
     }
 
+    /**
+     * @return copy of {@link #unreadData}
+     */
+    public byte[] getUnreadBytes() {
+        ByteBuffer data = unreadData;
+        if (data == null || !data.hasRemaining()) {
+            return NO_BYTES;
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
     public String getFullName() {
         return entry.getObjectFullName();
     }
@@ -45,10 +45,14 @@ public class Struct extends Field implements Iterable<Field> {
     @Bytecode
     public Token[] bytecode;
 
+    /**
+     * Resolves this struct and its fields if they are lazy references.
+     */
     @Override
     public Iterator<Field> iterator() {
+        resolve();
         return new Iterator<Field>() {
-            Field field = child;
+            Field field = resolve(child);
 
             @Override
             public boolean hasNext() {
@@ -60,12 +64,19 @@ public class Struct extends Field implements Iterable<Field> {
                 try {
                     return field;
                 } finally {
-                    field = field.next;
+                    field = resolve(field.next);
                 }
             }
         };
     }
 
+    private static Field resolve(Field field) {
+        if (field != null) {
+            field.resolve();
+        }
+        return field;
+    }
+
     @Override
     public Spliterator<Field> spliterator() {
         return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
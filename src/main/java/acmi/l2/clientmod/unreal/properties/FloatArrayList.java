@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Dynamic array of float values, {@link #get(int)} and {@link #set(int, Object)} box them.
+ * Elements other than {@link Float}, including null, switch the list to boxed storage.
+ */
+public final class FloatArrayList extends AbstractList<Object> implements RandomAccess {
+    private float[] elements;
+    private int size;
+    /**
+     * All elements once list is boxed, null before.
+     */
+    private List<Object> boxed;
+
+    public FloatArrayList() {
+        this(10);
+    }
+
+    public FloatArrayList(int capacity) {
+        elements = new float[capacity];
+    }
+
+    /**
+     * @return element, 0f if it is null
+     */
+    public float getFloat(int index) {
+        if (boxed != null) {
+            return toFloat(boxed.get(index));
+        }
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public float setFloat(int index, float value) {
+        if (boxed != null) {
+            return toFloat(boxed.set(index, value));
+        }
+        checkIndex(index);
+        float old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addFloat(float value) {
+        addFloat(size(), value);
+    }
+
+    public void addFloat(int index, float value) {
+        if (boxed != null) {
+            boxed.add(index, value);
+            modCount++;
+            return;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(10, size + (size >> 1)));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    public float[] toFloatArray() {
+        if (boxed != null) {
+            float[] array = new float[boxed.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = toFloat(boxed.get(i));
+            }
+            return array;
+        }
+        return Arrays.copyOf(elements, size);
+    }
+
+    public boolean isBoxed() {
+        return boxed != null;
+    }
+
+    private static float toFloat(Object value) {
+        return value != null ? ((Number) value).floatValue() : 0f;
+    }
+
+    private void box() {
+        boxed = new ArrayList<>(Math.max(10, size));
+        for (int i = 0; i < size; i++) {
+            boxed.add(elements[i]);
+        }
+        elements = null;
+        size = 0;
+    }
+
+    @Override
+    public Object get(int index) {
+        return boxed != null ? boxed.get(index) : getFloat(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        if (boxed == null) {
+            if (element instanceof Float) {
+                return setFloat(index, (Float) element);
+            }
+            checkIndex(index);
+            box();
+        }
+        return boxed.set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (boxed == null) {
+            if (element instanceof Float) {
+                addFloat(index, (Float) element);
+                return;
+            }
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            box();
+        }
+        boxed.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        if (boxed != null) {
+            modCount++;
+            return boxed.remove(index);
+        }
+        float old = getFloat(index);
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (boxed != null) {
+            boxed = null;
+            elements = new float[10];
+        }
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return boxed != null ? boxed.size() : size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
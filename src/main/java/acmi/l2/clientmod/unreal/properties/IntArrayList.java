@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Dynamic array of int values, {@link #get(int)} and {@link #set(int, Object)} box them.
+ * Elements other than {@link Integer}, including null, switch the list to boxed storage.
+ */
+public final class IntArrayList extends AbstractList<Object> implements RandomAccess {
+    private int[] elements;
+    private int size;
+    /**
+     * All elements once list is boxed, null before.
+     */
+    private List<Object> boxed;
+
+    public IntArrayList() {
+        this(10);
+    }
+
+    public IntArrayList(int capacity) {
+        elements = new int[capacity];
+    }
+
+    /**
+     * @return element, 0 if it is null
+     */
+    public int getInt(int index) {
+        if (boxed != null) {
+            return toInt(boxed.get(index));
+        }
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public int setInt(int index, int value) {
+        if (boxed != null) {
+            return toInt(boxed.set(index, value));
+        }
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addInt(int value) {
+        addInt(size(), value);
+    }
+
+    public void addInt(int index, int value) {
+        if (boxed != null) {
+            boxed.add(index, value);
+            modCount++;
+            return;
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(10, size + (size >> 1)));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    public int[] toIntArray() {
+        if (boxed != null) {
+            int[] array = new int[boxed.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = toInt(boxed.get(i));
+            }
+            return array;
+        }
+        return Arrays.copyOf(elements, size);
+    }
+
+    public boolean isBoxed() {
+        return boxed != null;
+    }
+
+    private static int toInt(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private void box() {
+        boxed = new ArrayList<>(Math.max(10, size));
+        for (int i = 0; i < size; i++) {
+            boxed.add(elements[i]);
+        }
+        elements = null;
+        size = 0;
+    }
+
+    @Override
+    public Object get(int index) {
+        return boxed != null ? boxed.get(index) : getInt(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        if (boxed == null) {
+            if (element instanceof Integer) {
+                return setInt(index, (Integer) element);
+            }
+            checkIndex(index);
+            box();
+        }
+        return boxed.set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (boxed == null) {
+            if (element instanceof Integer) {
+                addInt(index, (Integer) element);
+                return;
+            }
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            box();
+        }
+        boxed.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        if (boxed != null) {
+            modCount++;
+            return boxed.remove(index);
+        }
+        int old = getInt(index);
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (boxed != null) {
+            boxed = null;
+            elements = new int[10];
+        }
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return boxed != null ? boxed.size() : size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
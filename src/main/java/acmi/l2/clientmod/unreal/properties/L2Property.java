@@ -21,23 +21,68 @@
  */
 package acmi.l2.clientmod.unreal.properties;
 
+import acmi.l2.clientmod.unreal.core.BoolProperty;
+import acmi.l2.clientmod.unreal.core.ByteProperty;
+import acmi.l2.clientmod.unreal.core.FloatProperty;
+import acmi.l2.clientmod.unreal.core.IntProperty;
+import acmi.l2.clientmod.unreal.core.NameProperty;
+import acmi.l2.clientmod.unreal.core.ObjectProperty;
 import acmi.l2.clientmod.unreal.core.Property;
 import acmi.l2.clientmod.unreal.core.StructProperty;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-@EqualsAndHashCode
+/**
+ * Byte, int, object and name values are stored as int, float values as float and bool values as boolean,
+ * {@link #getAt(int)} and {@link #putAt(int, Object)} box them. Values of other types switch the property
+ * to boxed storage.
+ */
 public final class L2Property {
+    private static final int MAX_UNBOXED_SIZE = Long.SIZE;
+
     @Getter
     private final Property template;
-    private final Object[] value;
+    /**
+     * int[], float[], boolean[] or Object[]
+     */
+    private Object value;
+    /**
+     * Set elements of unboxed value.
+     */
+    private long assigned;
+    @Getter
+    private final int nameId;
 
     public L2Property(@NonNull Property template) {
         this.template = template;
-        this.value = new Object[template.arrayDimension];
+        this.value = newValue(template);
+        this.nameId = PropertiesUtil.PROPERTY_NAMES.id(getName());
+    }
+
+    private static Object newValue(Property template) {
+        int size = template.arrayDimension;
+        if (size > MAX_UNBOXED_SIZE) {
+            return new Object[size];
+        } else if (isIntValued(template)) {
+            return new int[size];
+        } else if (template instanceof FloatProperty) {
+            return new float[size];
+        } else if (template instanceof BoolProperty) {
+            return new boolean[size];
+        } else {
+            return new Object[size];
+        }
+    }
+
+    static boolean isIntValued(Property template) {
+        return template instanceof ByteProperty ||
+                template instanceof IntProperty ||
+                template instanceof ObjectProperty ||
+                template instanceof NameProperty;
     }
 
     public String getName() {
@@ -45,15 +90,158 @@ public final class L2Property {
     }
 
     public int getSize() {
-        return value.length;
+        if (value instanceof int[]) {
+            return ((int[]) value).length;
+        } else if (value instanceof float[]) {
+            return ((float[]) value).length;
+        } else if (value instanceof boolean[]) {
+            return ((boolean[]) value).length;
+        } else {
+            return ((Object[]) value).length;
+        }
+    }
+
+    public boolean isSet(int index) {
+        if (value instanceof Object[]) {
+            return ((Object[]) value)[index] != null;
+        }
+        checkIndex(index);
+        return (assigned & (1L << index)) != 0;
     }
 
     public Object getAt(int index) {
-        return value[index];
+        if (value instanceof Object[]) {
+            return ((Object[]) value)[index];
+        } else if (!isSet(index)) {
+            return null;
+        } else if (value instanceof int[]) {
+            return ((int[]) value)[index];
+        } else if (value instanceof float[]) {
+            return ((float[]) value)[index];
+        } else {
+            return ((boolean[]) value)[index];
+        }
     }
 
     public void putAt(int index, Object value) {
-        this.value[index] = value;
+        if (value == null && !(this.value instanceof Object[])) {
+            checkIndex(index);
+            assigned &= ~(1L << index);
+        } else if (this.value instanceof int[] && value instanceof Integer) {
+            putIntAt(index, (Integer) value);
+        } else if (this.value instanceof float[] && value instanceof Float) {
+            putFloatAt(index, (Float) value);
+        } else if (this.value instanceof boolean[] && value instanceof Boolean) {
+            putBoolAt(index, (Boolean) value);
+        } else {
+            if (!(this.value instanceof Object[])) {
+                box();
+            }
+            ((Object[]) this.value)[index] = value;
+        }
+    }
+
+    private void box() {
+        Object[] boxed = new Object[getSize()];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = getAt(i);
+        }
+        value = boxed;
+    }
+
+    /**
+     * Byte, int, object or name value, 0 if not set.
+     */
+    public int getIntAt(int index) {
+        if (value instanceof int[]) {
+            return ((int[]) value)[index];
+        }
+        Object obj = getAt(index);
+        return obj != null ? ((Number) obj).intValue() : 0;
+    }
+
+    public void putIntAt(int index, int value) {
+        if (this.value instanceof int[]) {
+            ((int[]) this.value)[index] = value;
+            assigned |= 1L << index;
+        } else {
+            putAt(index, (Integer) value);
+        }
+    }
+
+    /**
+     * Float value, 0 if not set.
+     */
+    public float getFloatAt(int index) {
+        if (value instanceof float[]) {
+            return ((float[]) value)[index];
+        }
+        Object obj = getAt(index);
+        return obj != null ? ((Number) obj).floatValue() : 0f;
+    }
+
+    public void putFloatAt(int index, float value) {
+        if (this.value instanceof float[]) {
+            ((float[]) this.value)[index] = value;
+            assigned |= 1L << index;
+        } else {
+            putAt(index, (Float) value);
+        }
+    }
+
+    /**
+     * Bool value, false if not set.
+     */
+    public boolean getBoolAt(int index) {
+        if (value instanceof boolean[]) {
+            return ((boolean[]) value)[index];
+        }
+        Object obj = getAt(index);
+        return obj != null && (Boolean) obj;
+    }
+
+    public void putBoolAt(int index, boolean value) {
+        if (this.value instanceof boolean[]) {
+            ((boolean[]) this.value)[index] = value;
+            assigned |= 1L << index;
+        } else {
+            putAt(index, (Boolean) value);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= getSize()) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof L2Property)) {
+            return false;
+        }
+        L2Property that = (L2Property) o;
+        if (!template.equals(that.template) || getSize() != that.getSize()) {
+            return false;
+        }
+        for (int i = 0; i < getSize(); i++) {
+            if (!Objects.equals(getAt(i), that.getAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = template.hashCode();
+        for (int i = 0; i < getSize(); i++) {
+            result = 31 * result + Objects.hashCode(getAt(i));
+        }
+        return result;
     }
 
     @Override
@@ -61,20 +249,42 @@ public final class L2Property {
         return "L2Property[" + template + "]";
     }
 
+    /**
+     * @return deep copy, structs and arrays are copied too
+     */
     public L2Property copy() {
         L2Property copy = new L2Property(template);
-        boolean primitive = PropertiesUtil.isPrimitive(template);
-        boolean isStruct = template instanceof StructProperty;
-        for (int i = 0; i < getSize(); i++) {
-            if (primitive) {
-                copy.putAt(i, getAt(i));
-            } else if (isStruct)
-                //noinspection unchecked
-            {
-                copy.putAt(i, PropertiesUtil.cloneStruct((List<L2Property>) getAt(i)));
+        if (value instanceof Object[]) {
+            Object[] values = (Object[]) value;
+            Object[] copyValues = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                copyValues[i] = copyValue(values[i]);
             }
-            //else ???
+            copy.value = copyValues;
+        } else {
+            copy.value = value instanceof int[] ? ((int[]) value).clone() :
+                    value instanceof float[] ? ((float[]) value).clone() :
+                            ((boolean[]) value).clone();
+            copy.assigned = assigned;
         }
         return copy;
     }
+
+    @SuppressWarnings("unchecked")
+    private Object copyValue(Object value) {
+        if (template instanceof StructProperty && value != null) {
+            return PropertiesUtil.cloneStruct((List<L2Property>) value);
+        }
+        if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            List<Object> copy = list instanceof IntArrayList ? new IntArrayList(list.size()) :
+                    list instanceof FloatArrayList ? new FloatArrayList(list.size()) :
+                            new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(element instanceof List ? PropertiesUtil.cloneStruct((List<L2Property>) element) : element);
+            }
+            return copy;
+        }
+        return value;
+    }
 }
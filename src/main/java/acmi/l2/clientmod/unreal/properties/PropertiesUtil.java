@@ -26,26 +26,101 @@ import acmi.l2.clientmod.unreal.UnrealException;
 import acmi.l2.clientmod.unreal.UnrealRuntimeContext;
 import acmi.l2.clientmod.unreal.UnrealSerializerFactory;
 import acmi.l2.clientmod.unreal.core.*;
+import acmi.l2.clientmod.unreal.util.ByteBufferObjectInput;
+import acmi.l2.clientmod.unreal.util.NameInterner;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 import java.io.ByteArrayOutputStream;
 import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.lang.Class;
 import java.lang.Object;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 @SuppressWarnings("unchecked")
 public class PropertiesUtil {
     private static final Logger log = Logger.getLogger(PropertiesUtil.class.getName());
 
+    /**
+     * Names of properties and of structs with codec, bounded by script vocabulary of loaded classes.
+     */
+    static final NameInterner PROPERTY_NAMES = new NameInterner();
+
+    private static final Map<Integer, StructCodec> structCodecs = new ConcurrentHashMap<>();
+
+    static {
+        registerStructCodec("Core.Object.Vector", new StructCodec(
+                StructCodec.Component.ofFloat("X"),
+                StructCodec.Component.ofFloat("Y"),
+                StructCodec.Component.ofFloat("Z")));
+        registerStructCodec("Core.Object.Rotator", new StructCodec(
+                StructCodec.Component.ofInt("Pitch"),
+                StructCodec.Component.ofInt("Yaw"),
+                StructCodec.Component.ofInt("Roll")));
+        registerStructCodec("Core.Object.Color", new StructCodec(
+                StructCodec.Component.ofByte("R"),
+                StructCodec.Component.ofByte("G"),
+                StructCodec.Component.ofByte("B"),
+                StructCodec.Component.ofByte("A")));
+    }
+
+    /**
+     * Adds properties to list. If serializer {@link UnrealSerializerFactory#isLazyProperties() is lazy} and list is an empty
+     * {@link PropertyList}, properties read from {@link ByteBufferObjectInput} are copied and decoded on first access.
+     */
+    public static void readProperties(ObjectInput<UnrealRuntimeContext> objectInput, String objClass, List<L2Property> properties) throws UnrealException {
+        if (objectInput instanceof ByteBufferObjectInput &&
+                properties instanceof PropertyList &&
+                properties.isEmpty() &&
+                objectInput.getContext().getSerializer().isLazyProperties()) {
+            ByteBufferObjectInput<UnrealRuntimeContext> input = (ByteBufferObjectInput<UnrealRuntimeContext>) objectInput;
+            int position = input.getPosition();
+            try {
+                skipProperties(input);
+            } catch (Exception e) {
+                throw new UnrealException(e);
+            }
+            ByteBuffer slice = input.slice(position);
+            ByteBuffer data = ByteBuffer.allocate(slice.remaining()).put(slice);
+            ((Buffer) data).flip();
+
+            Charset charset = input.getCharset();
+            SerializerFactory<UnrealRuntimeContext> serializerFactory = input.getSerializerFactory();
+            UnrealRuntimeContext context = input.getContext();
+            ((PropertyList) properties).defer(() -> readProperties(new ByteBufferObjectInput<>(data, charset, position, serializerFactory, context), objClass));
+        } else {
+            properties.addAll(readProperties(objectInput, objClass));
+        }
+    }
+
+    private static void skipProperties(ObjectInput<UnrealRuntimeContext> objectInput) throws UncheckedIOException {
+        UnrealPackage up = objectInput.getContext().getUnrealPackage();
+        int none = up.nameReference("None");
+        while (objectInput.readCompactInt() != none) {
+            int info = objectInput.readUnsignedByte();
+            Type propertyType = getPropertyType(info);
+            if (propertyType == Type.STRUCT) {
+                objectInput.readCompactInt();
+            }
+            int size = readPropertySize(getPropertySizeType(info), objectInput);
+            if (isArray(info) && propertyType != Type.BOOL) {
+                objectInput.readCompactInt();
+            }
+            objectInput.skip(size);
+        }
+    }
+
     public static List<L2Property> readProperties(ObjectInput<UnrealRuntimeContext> objectInput, String objClass) throws UnrealException {
-        List<L2Property> properties = new ArrayList<>();
+        PropertyList properties = new PropertyList();
 
-        List<Property> classTemplate = null;
+        StructLayout classTemplate = null;
 
         UnrealPackage up = objectInput.getContext().getUnrealPackage();
 
@@ -53,7 +128,7 @@ public class PropertiesUtil {
             String name;
             while (!(name = objectInput.getContext().getUnrealPackage().getNameTable().get(objectInput.readCompactInt()).getName()).equals("None")) {
                 if (classTemplate == null) {
-                    classTemplate = getPropertyFields(objectInput.getContext().getSerializer(), objClass).collect(Collectors.toList());
+                    classTemplate = objectInput.getContext().getSerializer().getStructLayout(objClass);
                 }
 
                 int info = objectInput.readUnsignedByte();
@@ -66,13 +141,10 @@ public class PropertiesUtil {
                 int arrayIndex = array && propertyType != Type.BOOL ? objectInput.readCompactInt() : 0;
 
                 final String n = name;
-                L2Property property = PropertiesUtil.getAt(properties, n);
+                int nameId = PROPERTY_NAMES.find(name);
+                L2Property property = properties.find(nameId);
                 if (property == null) {
-                    Property template = classTemplate.parallelStream()
-                            .filter(pt -> pt.entry.getObjectName().getName().equalsIgnoreCase((n)))
-                            .filter(pt -> match(pt.getClass(), propertyType))
-                            .findAny()
-                            .orElse(null);
+                    Property template = classTemplate.find(nameId, propertyType);
                     if (template == null) {
                         log.warning(() -> objClass + ": Property template not found: " + n);
                     } else {
@@ -90,9 +162,9 @@ public class PropertiesUtil {
                     Property arrayInner = null;
                     if (propertyType.equals(Type.ARRAY)) {
                         ArrayProperty arrayProperty = (ArrayProperty) property.getTemplate();
-                        arrayInner = arrayProperty.inner;
+                        arrayInner = objectInput.getContext().getSerializer().resolve(arrayProperty.inner);
                     }
-                    property.putAt(arrayIndex, read(objectInput, propertyType, array, arrayInner, struct));
+                    readAt(objectInput, property, arrayIndex, propertyType, array, arrayInner, struct);
                 } else {
                     objectInput.skip(size);
                 }
@@ -106,6 +178,36 @@ public class PropertiesUtil {
         return properties;
     }
 
+    private static void readAt(ObjectInput<UnrealRuntimeContext> objBuffer, L2Property property, int index, Type propertyType, boolean array, Property arrayInner, Struct struct) throws UncheckedIOException {
+        switch (propertyType) {
+            case BYTE:
+            case INT:
+            case OBJECT:
+            case NAME:
+                property.putIntAt(index, readInt(objBuffer, propertyType));
+                break;
+            case BOOL:
+                property.putBoolAt(index, array);
+                break;
+            case FLOAT:
+                property.putFloatAt(index, objBuffer.readFloat());
+                break;
+            default:
+                property.putAt(index, read(objBuffer, propertyType, array, arrayInner, struct));
+        }
+    }
+
+    private static int readInt(ObjectInput<UnrealRuntimeContext> objBuffer, Type propertyType) throws UncheckedIOException {
+        switch (propertyType) {
+            case BYTE:
+                return objBuffer.readUnsignedByte();
+            case INT:
+                return objBuffer.readInt();
+            default:
+                return objBuffer.readCompactInt();
+        }
+    }
+
     public static Object read(ObjectInput<UnrealRuntimeContext> objBuffer, Type propertyType, boolean array, Property arrayInner, Struct struct) throws UncheckedIOException {
         switch (propertyType) {
             case NONE:
@@ -124,7 +226,6 @@ public class PropertiesUtil {
                 return objBuffer.readCompactInt();
             case ARRAY:
                 int arraySize = objBuffer.readCompactInt();
-                List<Object> arrayList = new ArrayList<>(arraySize);
 
                 String a = arrayInner.getClass().getSimpleName().toUpperCase().replace("PROPERTY", "");
                 Property f = arrayInner;
@@ -140,9 +241,28 @@ public class PropertiesUtil {
                 if (propertyType == Type.ARRAY) {
                     array = true;
                     ArrayProperty arrayProperty = (ArrayProperty) f;
-                    arrayInner = arrayProperty.inner;
+                    arrayInner = objBuffer.getContext().getSerializer().resolve(arrayProperty.inner);
                 }
 
+                switch (propertyType) {
+                    case BYTE:
+                    case INT:
+                    case OBJECT:
+                    case NAME:
+                        IntArrayList intList = new IntArrayList(arraySize);
+                        for (int i = 0; i < arraySize; i++) {
+                            intList.addInt(readInt(objBuffer, propertyType));
+                        }
+                        return intList;
+                    case FLOAT:
+                        FloatArrayList floatList = new FloatArrayList(arraySize);
+                        for (int i = 0; i < arraySize; i++) {
+                            floatList.addFloat(objBuffer.readFloat());
+                        }
+                        return floatList;
+                }
+
+                List<Object> arrayList = new ArrayList<>(arraySize);
                 for (int i = 0; i < arraySize; i++) {
                     arrayList.add(read(objBuffer, propertyType, array, arrayInner, struct));
                 }
@@ -158,28 +278,53 @@ public class PropertiesUtil {
 
     public static List<L2Property> readStruct(ObjectInput<UnrealRuntimeContext> objBuffer, Struct struct) throws UncheckedIOException {
         String structName = struct.entry.getObjectFullName();
-        switch (structName) {
-            case "Core.Object.Vector":
-            case "Core.Object.Rotator":
-            case "Core.Object.Color":
-                return readStructBin(objBuffer, structName);
-            default:
-                return readProperties(objBuffer, structName);
+        if (getStructCodec(structName) != null) {
+            return readStructBin(objBuffer, structName);
+        } else {
+            return readProperties(objBuffer, structName);
         }
     }
 
+    /**
+     * Structs without codec are read as untagged values of all fields in layout order.
+     */
     public static List<L2Property> readStructBin(ObjectInput<UnrealRuntimeContext> objBuffer, String structName) throws UnrealException, UncheckedIOException {
-        List<Property> properties = getPropertyFields(objBuffer.getContext().getSerializer(), structName).collect(Collectors.toList());
+        StructLayout layout = objBuffer.getContext().getSerializer().getStructLayout(structName);
+        StructCodec codec = getStructCodec(structName);
+        if (codec != null) {
+            return codec.read(objBuffer, layout);
+        }
 
-        return properties.stream()
-                .map(L2Property::new)
-                .peek(l2Property -> l2Property.putAt(0, read(objBuffer, getType(l2Property.getTemplate()), false, null, null)))
-                .collect(Collectors.toList());
+        List<L2Property> properties = new PropertyList();
+        for (int i = 0; i < layout.size(); i++) {
+            Property template = layout.get(i);
+            Struct struct = template instanceof StructProperty ? ((StructProperty) template).struct : null;
+            L2Property property = new L2Property(template);
+            property.putAt(0, read(objBuffer, getType(template), false, null, struct));
+            properties.add(property);
+        }
+        return properties;
+    }
+
+    /**
+     * Structs with codec are serialized without property tags.
+     */
+    public static void registerStructCodec(@NonNull String structName, @NonNull StructCodec codec) {
+        structCodecs.put(PROPERTY_NAMES.id(structName), codec);
+    }
+
+    public static StructCodec getStructCodec(@NonNull String structName) {
+        int id = PROPERTY_NAMES.find(structName);
+        return id == NameInterner.NOT_FOUND ? null : structCodecs.get(id);
     }
 
     public static void writeProperties(ObjectOutput<UnrealRuntimeContext> output, List<L2Property> properties) {
         UnrealPackage up = output.getContext().getUnrealPackage();
 
+        PropertyOutput objBuffer = output instanceof PropertyOutput ?
+                (PropertyOutput) output : new PropertyOutput(output);
+        PropertyBuffer buffer = objBuffer.buffer;
+
         for (L2Property property : properties) {
             Property template = property.getTemplate();
 
@@ -189,63 +334,112 @@ public class PropertiesUtil {
                     continue;
                 }
 
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutput<UnrealRuntimeContext> objBuffer = new ObjectOutputStream<>(baos, output.getCharset(), 0, output.getSerializerFactory(), output.getContext());
+                int start = buffer.size();
                 write(objBuffer, template, obj);
-                byte[] bytes = baos.toByteArray();
+                int length = buffer.size() - start;
 
                 Type type = getType(template);
-                int size = getPropertySize(bytes.length);
+                int size = getPropertySize(length);
                 boolean array = (i > 0) || (type == Type.BOOL && ((Boolean) obj));
                 int info = (array ? 1 << 7 : 0) | (size << 4) | type.ordinal();
 
-                output.writeCompactInt(nameReference(up, template.entry.getObjectName().getName()));
-                output.writeByte(info);
+                int header = buffer.size();
+                objBuffer.writeCompactInt(nameReference(up, template.entry.getObjectName().getName()));
+                objBuffer.writeByte(info);
                 if (type == Type.STRUCT) {
-                    output.writeCompactInt(nameReference(up, ((StructProperty) template).struct.entry.getObjectName().getName()));
+                    objBuffer.writeCompactInt(nameReference(up, ((StructProperty) template).struct.entry.getObjectName().getName()));
                 }
                 switch (size) {
                     case 5:
-                        output.writeByte(bytes.length);
+                        objBuffer.writeByte(length);
                         break;
                     case 6:
-                        output.writeShort(bytes.length);
+                        objBuffer.writeShort(length);
                         break;
                     case 7:
-                        output.writeInt(bytes.length);
+                        objBuffer.writeInt(length);
                         break;
                 }
                 if (i > 0) {
-                    output.writeByte(i);
+                    objBuffer.writeByte(i);
                 }
-                output.writeBytes(bytes);
+                buffer.moveTail(header, start);
             }
         }
-        output.writeCompactInt(up.nameReference("None"));
+        objBuffer.writeCompactInt(up.nameReference("None"));
+
+        if (objBuffer != output) {
+            output.writeBytes(buffer.toByteArray());
+        }
+    }
+
+    /**
+     * Properties of one top level {@link #writeProperties} call, nested structs are written to the same buffer.
+     */
+    private static final class PropertyOutput extends ObjectOutputStream<UnrealRuntimeContext> {
+        private final PropertyBuffer buffer;
+
+        private PropertyOutput(ObjectOutput<UnrealRuntimeContext> output) {
+            this(new PropertyBuffer(), output);
+        }
+
+        private PropertyOutput(PropertyBuffer buffer, ObjectOutput<UnrealRuntimeContext> output) {
+            super(buffer, output.getCharset(), 0, output.getSerializerFactory(), output.getContext());
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class PropertyBuffer extends ByteArrayOutputStream {
+        private byte[] tail = new byte[16];
+
+        /**
+         * Moves bytes from {@code from} to end in front of {@code to}.
+         */
+        void moveTail(int from, int to) {
+            int length = count - from;
+            if (tail.length < length) {
+                tail = new byte[length];
+            }
+            System.arraycopy(buf, from, tail, 0, length);
+            System.arraycopy(buf, to, buf, to + length, from - to);
+            System.arraycopy(tail, 0, buf, to, length);
+        }
     }
 
     public static void write(ObjectOutput<UnrealRuntimeContext> objBuffer, Property template, Object obj) throws UncheckedIOException {
         if (template instanceof ByteProperty) {
-            objBuffer.writeByte((Integer) obj);
+            objBuffer.writeByte(((Number) obj).intValue());
         } else if (template instanceof IntProperty) {
-            objBuffer.writeInt((Integer) obj);
+            objBuffer.writeInt(((Number) obj).intValue());
         } else if (template instanceof BoolProperty) {
             //nothing
         } else if (template instanceof FloatProperty) {
-            objBuffer.writeFloat((Float) obj);
+            objBuffer.writeFloat(((Number) obj).floatValue());
         } else if (template instanceof ObjectProperty) {
-            objBuffer.writeCompactInt((Integer) obj);
+            objBuffer.writeCompactInt(((Number) obj).intValue());
         } else if (template instanceof NameProperty) {
-            objBuffer.writeCompactInt((Integer) obj);
+            objBuffer.writeCompactInt(((Number) obj).intValue());
         } else if (template instanceof ArrayProperty) {
             ArrayProperty arrayProperty = (ArrayProperty) template;
 
             List<Object> arrayList = (List<Object>) obj;
             objBuffer.writeCompactInt(arrayList.size());
 
-            Property arrayInner = arrayProperty.inner;
-            for (Object arrayObj : arrayList) {
-                write(objBuffer, arrayInner, arrayObj);
+            Property arrayInner = objBuffer.getContext().getSerializer().resolve(arrayProperty.inner);
+            if (arrayList instanceof IntArrayList && L2Property.isIntValued(arrayInner)) {
+                IntArrayList intList = (IntArrayList) arrayList;
+                for (int i = 0; i < intList.size(); i++) {
+                    writeInt(objBuffer, arrayInner, intList.getInt(i));
+                }
+            } else if (arrayList instanceof FloatArrayList && arrayInner instanceof FloatProperty) {
+                FloatArrayList floatList = (FloatArrayList) arrayList;
+                for (int i = 0; i < floatList.size(); i++) {
+                    objBuffer.writeFloat(floatList.getFloat(i));
+                }
+            } else {
+                for (Object arrayObj : arrayList) {
+                    write(objBuffer, arrayInner, arrayObj);
+                }
             }
         } else if (template instanceof StructProperty) {
             StructProperty structProperty = (StructProperty) template;
@@ -257,39 +451,30 @@ public class PropertiesUtil {
         }
     }
 
+    private static void writeInt(ObjectOutput<UnrealRuntimeContext> objBuffer, Property template, int value) throws UncheckedIOException {
+        if (template instanceof ByteProperty) {
+            objBuffer.writeByte(value);
+        } else if (template instanceof IntProperty) {
+            objBuffer.writeInt(value);
+        } else {
+            objBuffer.writeCompactInt(value);
+        }
+    }
+
     public static void writeStruct(ObjectOutput<UnrealRuntimeContext> objBuffer, String structName, List<L2Property> struct) throws UncheckedIOException {
-        switch (structName) {
-            case "Core.Object.Color":
-            case "Core.Object.Vector":
-            case "Core.Object.Rotator":
-                writeStructBin(objBuffer, struct, structName);
-                break;
-            default:
-                writeProperties(objBuffer, struct);
+        if (getStructCodec(structName) != null) {
+            writeStructBin(objBuffer, struct, structName);
+        } else {
+            writeProperties(objBuffer, struct);
         }
     }
 
     public static void writeStructBin(DataOutput objBuffer, List<L2Property> struct, String structName) throws UncheckedIOException {
-        switch (structName) {
-            case "Core.Object.Color":
-                objBuffer.writeByte(struct.stream().filter(p -> p.getName().equalsIgnoreCase("R")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                objBuffer.writeByte(struct.stream().filter(p -> p.getName().equalsIgnoreCase("G")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                objBuffer.writeByte(struct.stream().filter(p -> p.getName().equalsIgnoreCase("B")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                objBuffer.writeByte(struct.stream().filter(p -> p.getName().equalsIgnoreCase("A")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                break;
-            case "Core.Object.Vector":
-                objBuffer.writeFloat(struct.stream().filter(p -> p.getName().equalsIgnoreCase("X")).map(p -> (Float) p.getAt(0)).findAny().orElse(0f));
-                objBuffer.writeFloat(struct.stream().filter(p -> p.getName().equalsIgnoreCase("Y")).map(p -> (Float) p.getAt(0)).findAny().orElse(0f));
-                objBuffer.writeFloat(struct.stream().filter(p -> p.getName().equalsIgnoreCase("Z")).map(p -> (Float) p.getAt(0)).findAny().orElse(0f));
-                break;
-            case "Core.Object.Rotator":
-                objBuffer.writeInt(struct.stream().filter(p -> p.getName().equalsIgnoreCase("Pitch")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                objBuffer.writeInt(struct.stream().filter(p -> p.getName().equalsIgnoreCase("Yaw")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                objBuffer.writeInt(struct.stream().filter(p -> p.getName().equalsIgnoreCase("Roll")).mapToInt(p -> (Integer) p.getAt(0)).findAny().orElse(0));
-                break;
-            default:
-                throw new UnsupportedOperationException("not implemented");
+        StructCodec codec = getStructCodec(structName);
+        if (codec == null) {
+            throw new UnrealException("Struct codec not registered: " + structName);
         }
+        codec.write(objBuffer, struct);
     }
 
     private static int nameReference(UnrealPackage up, String name) {
@@ -385,27 +570,33 @@ public class PropertiesUtil {
     }
 
     public static L2Property getAt(List<L2Property> properties, String name) {
-        return properties.stream()
-                .filter(p -> p.getName().equalsIgnoreCase((name)))
-                .findFirst()
-                .orElse(null);
+        return getAt(properties, nameId(name));
     }
 
-    public static Stream<Property> getPropertyFields(UnrealSerializerFactory serializer, String structName) {
-        Stream<Property> props = Stream.empty();
-        while (structName != null) {
-            Struct struct = serializer.getStruct(structName)
-                    .orElse(new Struct());
-            props = Stream.concat(props, StreamSupport.stream(struct.spliterator(), false)
-                    .filter(f -> f instanceof Property)
-                    .map(f -> (Property) f));
-            structName = struct.entry != null && struct.entry.getObjectSuperClass() != null ?
-                    struct.entry.getObjectSuperClass().getObjectFullName() : null;
+    /**
+     * @return id used by {@link L2Property#getNameId()} or {@link NameInterner#NOT_FOUND} if no property has such name
+     */
+    public static int nameId(String name) {
+        return PROPERTY_NAMES.find(name);
+    }
+
+    public static L2Property getAt(List<L2Property> properties, int nameId) {
+        if (properties instanceof PropertyList) {
+            return ((PropertyList) properties).find(nameId);
+        }
+        for (L2Property property : properties) {
+            if (property.getNameId() == nameId) {
+                return property;
+            }
         }
-        return props;
+        return null;
     }
 
-    private static boolean match(Class<? extends Property> clazz, Type type) {
+    public static Stream<Property> getPropertyFields(UnrealSerializerFactory serializer, String structName) {
+        return serializer.getStructLayout(structName).stream();
+    }
+
+    static boolean match(Class<? extends Property> clazz, Type type) {
         return type.clazz != null && type.clazz.isAssignableFrom(clazz);
     }
 
@@ -429,7 +620,7 @@ public class PropertiesUtil {
     public static List<L2Property> cloneStruct(List<L2Property> struct) {
         return struct.stream()
                 .map(L2Property::copy)
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(PropertyList::new));
     }
 
     public static L2Property create(Property property, String structName, UnrealSerializerFactory serializer, UnrealPackage up) {
@@ -446,17 +637,22 @@ public class PropertiesUtil {
                 .map(struct -> (acmi.l2.clientmod.unreal.core.Class) struct);
 
         if (classOpt.isPresent()) {
-            Object[] defaultValue = new Object[1];
-            serializer.getStructTree(classOpt.get()).forEach(superClass -> superClass.properties
-                    .parallelStream()
-                    .filter(l2Property -> l2Property.getTemplate().equals(property))
-                    .findAny()
-                    .ifPresent(l2Property -> defaultValue[0] = l2Property.getAt(0)));
-            if (defaultValue[0] != null) {
+            Object defaultValue = null;
+            List<acmi.l2.clientmod.unreal.core.Class> tree = serializer.getStructTree(classOpt.get());
+            search:
+            for (int i = tree.size() - 1; i >= 0; i--) {
+                for (L2Property l2Property : tree.get(i).properties) {
+                    if (l2Property.getTemplate().equals(property)) {
+                        defaultValue = l2Property.getAt(0);
+                        break search;
+                    }
+                }
+            }
+            if (defaultValue != null) {
                 if (PropertiesUtil.isPrimitive(property)) {
-                    return defaultValue[0];
+                    return defaultValue;
                 } else if (property instanceof StructProperty) {
-                    return PropertiesUtil.cloneStruct((List<L2Property>) defaultValue[0]);
+                    return PropertiesUtil.cloneStruct((List<L2Property>) defaultValue);
                 }
             }
         }
@@ -481,7 +677,7 @@ public class PropertiesUtil {
             String structName = ((StructProperty) property).struct.getFullName();
             return getProperties(structName, serializer, true, true)
                     .map(p -> create(p, structName, serializer, unrealPackage))
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toCollection(PropertyList::new));
         } else if (property instanceof ArrayProperty) {
             return new ArrayList();
         } else if (property instanceof StrProperty) {
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.unreal.util.NameInterner;
+import lombok.NonNull;
+
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Properties in insertion order, indexed by name.
+ */
+public final class PropertyList extends AbstractList<L2Property> implements RandomAccess {
+    /**
+     * Null while properties are not decoded or decoded ones are not modified.
+     */
+    private volatile List<L2Property> properties;
+    /**
+     * First property by name id, rebuilt on demand after removal or replacement.
+     */
+    private volatile Map<Integer, L2Property> index;
+    private volatile Supplier<List<L2Property>> source;
+    private volatile SoftReference<PropertyList> decoded;
+    /**
+     * Decoded properties once any of them was handed out, so changes made to them are kept.
+     */
+    private volatile PropertyList pinned;
+
+    public PropertyList() {
+        properties = new ArrayList<>();
+    }
+
+    public PropertyList(@NonNull Collection<L2Property> properties) {
+        this.properties = new ArrayList<>(properties);
+    }
+
+    /**
+     * Properties are decoded from source on first access and softly kept until any of them is read.
+     */
+    void defer(@NonNull Supplier<List<L2Property>> source) {
+        synchronized (this) {
+            if (!isEmpty()) {
+                throw new IllegalStateException("Not empty");
+            }
+            this.source = source;
+            this.decoded = null;
+            this.pinned = null;
+            this.index = null;
+            this.properties = null;
+        }
+    }
+
+    /**
+     * @return decoded properties or null if properties are modifiable
+     */
+    private PropertyList decoded() {
+        PropertyList list = cachedDecoded();
+        if (list != null) {
+            return list;
+        }
+
+        Supplier<List<L2Property>> source;
+        synchronized (this) {
+            if (properties != null) {
+                return null;
+            }
+            list = cachedDecoded();
+            if (list != null) {
+                return list;
+            }
+            source = this.source;
+        }
+
+        list = new PropertyList(source.get());
+        synchronized (this) {
+            if (properties != null) {
+                return null;
+            }
+            PropertyList current = cachedDecoded();
+            if (current != null) {
+                return current;
+            }
+            decoded = new SoftReference<>(list);
+            return list;
+        }
+    }
+
+    private PropertyList cachedDecoded() {
+        if (pinned != null) {
+            return pinned;
+        }
+        SoftReference<PropertyList> ref = decoded;
+        return ref != null ? ref.get() : null;
+    }
+
+    private L2Property pin(PropertyList list, L2Property element) {
+        if (element != null && pinned != list) {
+            synchronized (this) {
+                if (properties == null && cachedDecoded() == list) {
+                    pinned = list;
+                }
+            }
+        }
+        return element;
+    }
+
+    private List<L2Property> modifiable() {
+        List<L2Property> properties = this.properties;
+        if (properties == null) {
+            synchronized (this) {
+                properties = this.properties;
+                if (properties == null) {
+                    properties = new ArrayList<>(decoded());
+                    this.properties = properties;
+                    source = null;
+                    decoded = null;
+                    pinned = null;
+                    index = null;
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return first property with name, case insensitive, or null
+     */
+    public L2Property find(String name) {
+        int nameId = PropertiesUtil.PROPERTY_NAMES.find(name);
+        return nameId == NameInterner.NOT_FOUND ? null : find(nameId);
+    }
+
+    public L2Property find(int nameId) {
+        List<L2Property> properties = this.properties;
+        if (properties == null) {
+            PropertyList decoded = decoded();
+            if (decoded != null) {
+                return pin(decoded, decoded.find(nameId));
+            }
+            properties = this.properties;
+        }
+
+        Map<Integer, L2Property> index = this.index;
+        if (index == null) {
+            index = new HashMap<>();
+            for (L2Property property : properties) {
+                index.putIfAbsent(property.getNameId(), property);
+            }
+            this.index = index;
+        }
+        return index.get(nameId);
+    }
+
+    @Override
+    public L2Property get(int index) {
+        List<L2Property> properties = this.properties;
+        if (properties == null) {
+            PropertyList decoded = decoded();
+            if (decoded != null) {
+                return pin(decoded, decoded.get(index));
+            }
+            properties = this.properties;
+        }
+        return properties.get(index);
+    }
+
+    @Override
+    public int size() {
+        List<L2Property> properties = this.properties;
+        if (properties == null) {
+            PropertyList decoded = decoded();
+            if (decoded != null) {
+                return decoded.size();
+            }
+            properties = this.properties;
+        }
+        return properties.size();
+    }
+
+    @Override
+    public L2Property set(int index, @NonNull L2Property element) {
+        L2Property old = modifiable().set(index, element);
+        this.index = null;
+        return old;
+    }
+
+    @Override
+    public void add(int index, @NonNull L2Property element) {
+        List<L2Property> properties = modifiable();
+        boolean append = index == properties.size();
+        properties.add(index, element);
+        modCount++;
+
+        Map<Integer, L2Property> map = this.index;
+        if (append && map != null) {
+            map.putIfAbsent(element.getNameId(), element);
+        } else {
+            this.index = null;
+        }
+    }
+
+    @Override
+    public L2Property remove(int index) {
+        L2Property old = modifiable().remove(index);
+        modCount++;
+        this.index = null;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            properties = new ArrayList<>();
+            source = null;
+            decoded = null;
+            pinned = null;
+            index = null;
+        }
+        modCount++;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.io.DataOutput;
+import acmi.l2.clientmod.io.ObjectInput;
+import acmi.l2.clientmod.unreal.UnrealException;
+import acmi.l2.clientmod.unreal.UnrealRuntimeContext;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Untagged struct serialization, components are read and written in declared order.
+ * Struct fields without component are not serialized.
+ *
+ * @see PropertiesUtil#registerStructCodec(String, StructCodec)
+ */
+public final class StructCodec {
+    private final Component[] components;
+
+    public StructCodec(@NonNull Component... components) {
+        this.components = components.clone();
+    }
+
+    /**
+     * @return all layout fields, those without component are not set
+     */
+    public List<L2Property> read(ObjectInput<UnrealRuntimeContext> input, StructLayout layout) throws UncheckedIOException {
+        L2Property[] properties = new L2Property[layout.size()];
+        for (int i = 0; i < properties.length; i++) {
+            properties[i] = new L2Property(layout.get(i));
+        }
+
+        for (Component component : components) {
+            int index = layout.indexOf(component.nameId);
+            L2Property property = index < 0 ? null : properties[index];
+            switch (component.type) {
+                case BYTE:
+                    put(property, input.readUnsignedByte());
+                    break;
+                case INT:
+                    put(property, input.readInt());
+                    break;
+                case FLOAT:
+                    float f = input.readFloat();
+                    if (property != null) {
+                        property.putFloatAt(0, f);
+                    }
+                    break;
+                default:
+                    List<L2Property> struct = codec(component.structName)
+                            .read(input, input.getContext().getSerializer().getStructLayout(component.structName));
+                    if (property != null) {
+                        property.putAt(0, struct);
+                    }
+            }
+        }
+
+        return new PropertyList(Arrays.asList(properties));
+    }
+
+    private static void put(L2Property property, int value) {
+        if (property != null) {
+            property.putIntAt(0, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void write(DataOutput output, List<L2Property> struct) throws UncheckedIOException {
+        for (Component component : components) {
+            L2Property property = PropertiesUtil.getAt(struct, component.nameId);
+            switch (component.type) {
+                case BYTE:
+                    output.writeByte(property != null ? property.getIntAt(0) : 0);
+                    break;
+                case INT:
+                    output.writeInt(property != null ? property.getIntAt(0) : 0);
+                    break;
+                case FLOAT:
+                    output.writeFloat(property != null ? property.getFloatAt(0) : 0f);
+                    break;
+                default:
+                    List<L2Property> value = property != null ? (List<L2Property>) property.getAt(0) : null;
+                    codec(component.structName).write(output, value != null ? value : Collections.emptyList());
+            }
+        }
+    }
+
+    private static StructCodec codec(String structName) {
+        StructCodec codec = PropertiesUtil.getStructCodec(structName);
+        if (codec == null) {
+            throw new UnrealException("Struct codec not registered: " + structName);
+        }
+        return codec;
+    }
+
+    @Getter
+    public static final class Component {
+        private final String name;
+        private final PropertiesUtil.Type type;
+        private final String structName;
+        private final int nameId;
+
+        private Component(String name, PropertiesUtil.Type type, String structName) {
+            this.name = name;
+            this.type = type;
+            this.structName = structName;
+            this.nameId = PropertiesUtil.PROPERTY_NAMES.id(name);
+        }
+
+        public static Component ofByte(@NonNull String name) {
+            return new Component(name, PropertiesUtil.Type.BYTE, null);
+        }
+
+        public static Component ofInt(@NonNull String name) {
+            return new Component(name, PropertiesUtil.Type.INT, null);
+        }
+
+        public static Component ofFloat(@NonNull String name) {
+            return new Component(name, PropertiesUtil.Type.FLOAT, null);
+        }
+
+        /**
+         * Struct must have registered codec.
+         */
+        public static Component ofStruct(@NonNull String name, @NonNull String structName) {
+            return new Component(name, PropertiesUtil.Type.STRUCT, structName);
+        }
+    }
+}
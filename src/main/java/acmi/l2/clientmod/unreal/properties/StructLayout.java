@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.unreal.core.Property;
+import acmi.l2.clientmod.unreal.util.NameInterner;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Property templates of struct and its superstructs, own fields first.
+ */
+public final class StructLayout {
+    public static final StructLayout EMPTY = new StructLayout(new Property[0]);
+
+    private final Property[] properties;
+    private final int[] nameIds;
+    private final Map<Integer, Integer> indexByName = new HashMap<>();
+    private final Map<Long, Property> byNameAndType = new HashMap<>();
+
+    public StructLayout(@NonNull Property[] properties) {
+        this.properties = properties.clone();
+        this.nameIds = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            nameIds[i] = PropertiesUtil.PROPERTY_NAMES.id(properties[i].entry.getObjectName().getName());
+            indexByName.putIfAbsent(nameIds[i], i);
+            for (PropertiesUtil.Type type : PropertiesUtil.Type.values()) {
+                if (PropertiesUtil.match(properties[i].getClass(), type)) {
+                    byNameAndType.putIfAbsent(key(nameIds[i], type), properties[i]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return properties.length;
+    }
+
+    public Property get(int index) {
+        return properties[index];
+    }
+
+    public int getNameId(int index) {
+        return nameIds[index];
+    }
+
+    /**
+     * @return first template with name, case insensitive, or null
+     */
+    public Property find(String name) {
+        int nameId = PropertiesUtil.PROPERTY_NAMES.find(name);
+        return nameId == NameInterner.NOT_FOUND ? null : findByNameId(nameId);
+    }
+
+    public Property findByNameId(int nameId) {
+        int index = indexOf(nameId);
+        return index < 0 ? null : properties[index];
+    }
+
+    /**
+     * @return index of first template with name id or -1
+     */
+    public int indexOf(int nameId) {
+        return indexByName.getOrDefault(nameId, -1);
+    }
+
+    /**
+     * @return first template with name that can hold value of tag type, or null
+     */
+    public Property find(int nameId, @NonNull PropertiesUtil.Type type) {
+        return byNameAndType.get(key(nameId, type));
+    }
+
+    private static long key(int nameId, PropertiesUtil.Type type) {
+        return ((long) nameId << 32) | type.ordinal();
+    }
+
+    public Stream<Property> stream() {
+        return Arrays.stream(properties);
+    }
+}
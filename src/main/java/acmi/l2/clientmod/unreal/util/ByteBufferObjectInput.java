@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.util;
+
+import acmi.l2.clientmod.io.Context;
+import acmi.l2.clientmod.io.ObjectInput;
+import acmi.l2.clientmod.io.SerializerFactory;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Reads directly from a little endian view of buffer, without intermediate copies.
+ * Reading past the end throws {@link UncheckedIOException} caused by {@link EOFException}.
+ */
+public class ByteBufferObjectInput<C extends Context> implements ObjectInput<C> {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int offset;
+    @Getter
+    private final Charset charset;
+    @Getter
+    private final SerializerFactory<C> serializerFactory;
+    @Getter
+    private final C context;
+
+    /**
+     * @param offset position reported for the start of buffer
+     */
+    public ByteBufferObjectInput(@NonNull ByteBuffer buffer, Charset charset, int offset, SerializerFactory<C> serializerFactory, C context) {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.start = buffer.position();
+        this.offset = offset;
+        this.charset = charset;
+        this.serializerFactory = serializerFactory;
+        this.context = context;
+    }
+
+    @Override
+    public int getPosition() {
+        return offset + buffer.position() - start;
+    }
+
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws UncheckedIOException {
+        require(len);
+        buffer.get(b, off, len);
+    }
+
+    @Override
+    public void skip(int n) throws UncheckedIOException {
+        require(n);
+        ((Buffer) buffer).position(buffer.position() + n);
+    }
+
+    @Override
+    public int readUnsignedByte() throws UncheckedIOException {
+        require(1);
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int readUnsignedShort() throws UncheckedIOException {
+        require(2);
+        return buffer.getShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() throws UncheckedIOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws UncheckedIOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    @Override
+    public float readFloat() throws UncheckedIOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    @Override
+    public int readCompactInt() throws UncheckedIOException {
+        int b = readUnsignedByte();
+        boolean negative = (b & 0x80) != 0;
+        int value = b & 0x3f;
+        if ((b & 0x40) != 0) {
+            for (int shift = 6; shift < 32; shift += 7) {
+                b = readUnsignedByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return bytes from position to current position, content is shared
+     */
+    public ByteBuffer slice(int position) {
+        int from = start + position - offset;
+        if (from < start || from > buffer.position()) {
+            throw new IllegalArgumentException(String.valueOf(position));
+        }
+        ByteBuffer slice = buffer.duplicate();
+        ((Buffer) slice).limit(buffer.position());
+        ((Buffer) slice).position(from);
+        return slice.slice();
+    }
+
+    private void require(int n) throws UncheckedIOException {
+        if (n < 0 || n > buffer.remaining()) {
+            throw new UncheckedIOException(new EOFException(String.format("%d bytes required, %d remaining", n, buffer.remaining())));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.util;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Case insensitive multimap with lock free, allocation free lookups.
+ * Keys can be looked up by a region of a char sequence, writes are synchronized.
+ */
+@SuppressWarnings("unchecked")
+public class NameIndex<V> {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Node[] table = new Node[INITIAL_CAPACITY];
+    private int size;
+
+    public static int hash(CharSequence s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + fold(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    public static boolean regionEquals(String key, CharSequence s, int from, int to) {
+        int length = to - from;
+        if (key.length() != length) {
+            return false;
+        }
+        if (s instanceof String) {
+            return key.regionMatches(true, 0, (String) s, from, length);
+        }
+        for (int i = 0; i < length; i++) {
+            char c1 = key.charAt(i);
+            char c2 = s.charAt(from + i);
+            if (c1 != c2 && fold(c1) != fold(c2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    public V find(@NonNull CharSequence key, Predicate<? super V> filter) {
+        return find(key, 0, key.length(), filter);
+    }
+
+    /**
+     * @return first value added for key region [from, to) and accepted by filter, or null
+     */
+    public V find(@NonNull CharSequence key, int from, int to, Predicate<? super V> filter) {
+        Node node = node(key, from, to);
+        if (node != null) {
+            for (Object value : node.values) {
+                if (filter == null || filter.test((V) value)) {
+                    return (V) value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return values added for key region [from, to), returned array is shared and must not be modified
+     */
+    public Object[] values(@NonNull CharSequence key, int from, int to) {
+        Node node = node(key, from, to);
+        return node != null ? node.values : EMPTY;
+    }
+
+    public boolean containsKey(@NonNull CharSequence key) {
+        return node(key, 0, key.length()) != null;
+    }
+
+    private Node node(CharSequence key, int from, int to) {
+        int hash = hash(key, from, to);
+        Node[] tab = table;
+        for (Node node = tab[hash & (tab.length - 1)]; node != null; node = node.next) {
+            if (node.hash == hash && regionEquals(node.key, key, from, to)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public synchronized void add(@NonNull String key, @NonNull V value) {
+        int hash = hash(key, 0, key.length());
+        Node[] tab = table;
+        int i = hash & (tab.length - 1);
+        Node node = find(tab[i], key, hash);
+        if (node != null) {
+            Object[] values = Arrays.copyOf(node.values, node.values.length + 1);
+            values[values.length - 1] = value;
+            tab[i] = replace(tab[i], node, new Node(node.key, hash, values, null));
+        } else {
+            tab[i] = new Node(key, hash, new Object[]{value}, tab[i]);
+            if (++size > tab.length - (tab.length >>> 2)) {
+                tab = resize(tab);
+            }
+        }
+        table = tab;
+    }
+
+    /**
+     * Removes value (compared by identity) from key.
+     */
+    public synchronized void remove(@NonNull String key, @NonNull V value) {
+        int hash = hash(key, 0, key.length());
+        Node[] tab = table;
+        int i = hash & (tab.length - 1);
+        Node node = find(tab[i], key, hash);
+        if (node == null) {
+            return;
+        }
+
+        Object[] values = Arrays.stream(node.values)
+                .filter(v -> v != value)
+                .toArray();
+        if (values.length == node.values.length) {
+            return;
+        }
+        if (values.length == 0) {
+            tab[i] = replace(tab[i], node, null);
+            size--;
+        } else {
+            tab[i] = replace(tab[i], node, new Node(node.key, hash, values, null));
+        }
+        table = tab;
+    }
+
+    public synchronized void clear() {
+        table = new Node[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Node find(Node head, String key, int hash) {
+        for (Node node = head; node != null; node = node.next) {
+            if (node.hash == hash && regionEquals(node.key, key, 0, key.length())) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Nodes are immutable, so chain is copied up to replaced node.
+     */
+    private static Node replace(Node head, Node node, Node replacement) {
+        if (head == node) {
+            return replacement == null ? node.next : new Node(replacement.key, replacement.hash, replacement.values, node.next);
+        }
+        return new Node(head.key, head.hash, head.values, replace(head.next, node, replacement));
+    }
+
+    private static Node[] resize(Node[] tab) {
+        Node[] newTab = new Node[tab.length << 1];
+        for (Node head : tab) {
+            for (Node node = head; node != null; node = node.next) {
+                int i = node.hash & (newTab.length - 1);
+                newTab[i] = new Node(node.key, node.hash, node.values, newTab[i]);
+            }
+        }
+        return newTab;
+    }
+
+    private static class Node {
+        final String key;
+        final int hash;
+        final Object[] values;
+        final Node next;
+
+        Node(String key, int hash, Object[] values, Node next) {
+            this.key = key;
+            this.hash = hash;
+            this.values = values;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.util;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Case insensitive name to int id mapping.
+ * Equal ignoring case names always get the same id, so ids can be compared instead of strings.
+ * Ids are never released, names are reclaimed with the interner.
+ */
+public final class NameInterner {
+    public static final int NOT_FOUND = -1;
+
+    private final NameIndex<Integer> ids = new NameIndex<>();
+    private int nextId;
+    private volatile String[] names = new String[16];
+
+    public int id(@NonNull CharSequence name) {
+        return id(name, 0, name.length());
+    }
+
+    /**
+     * @return id of name region [from, to), new id is assigned on first call
+     */
+    public int id(@NonNull CharSequence name, int from, int to) {
+        Integer id = ids.find(name, from, to, null);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (ids) {
+            id = ids.find(name, from, to, null);
+            if (id == null) {
+                id = nextId++;
+                String s = name.subSequence(from, to).toString();
+                String[] n = names;
+                if (id == n.length) {
+                    n = Arrays.copyOf(n, n.length * 2);
+                }
+                n[id] = s;
+                names = n;
+                ids.add(s, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @return id of name or {@link #NOT_FOUND} if name was never interned
+     */
+    public int find(@NonNull CharSequence name) {
+        Integer id = ids.find(name, null);
+        return id != null ? id : NOT_FOUND;
+    }
+
+    /**
+     * @return name first interned with id
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return key combining ids of both names
+     */
+    public long key(@NonNull CharSequence name1, @NonNull CharSequence name2) {
+        return ((long) id(name1) << 32) | id(name2);
+    }
+
+    public int size() {
+        synchronized (ids) {
+            return nextId;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EnvironmentTest {
+    private static final File SYSTEM = new File("src/test/resources/system");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mappedEncryptedPackage() throws IOException {
+        copy("Core.u", false);
+        assertMappedDataEquals();
+    }
+
+    @Test
+    public void mappedPackage() throws IOException {
+        copy("Core.u", true);
+        assertMappedDataEquals();
+    }
+
+    @Test
+    public void exportEntryLookup() throws IOException {
+        copy("Core.u", false);
+        Environment environment = new Environment(folder.getRoot(), Collections.singletonList("*.u"));
+
+        UnrealPackage.ExportEntry object = environment.getExportEntry("core.object", "Core.Class"::equalsIgnoreCase)
+                .orElseThrow(AssertionError::new);
+        assertEquals("Core.Object", object.getObjectFullName());
+
+        UnrealPackage.ExportEntry vector = environment.getExportEntry("Core.Vector", "Core.Struct"::equalsIgnoreCase)
+                .orElseThrow(AssertionError::new);
+        assertEquals("Core.Object.Vector", vector.getObjectFullName());
+
+        assertFalse(environment.getExportEntry("Core.Object", "Core.Struct"::equalsIgnoreCase).isPresent());
+    }
+
+    @Test
+    public void leastRecentlyUsedEviction() throws IOException {
+        File core = copy("Core.u", false);
+        File engine = copy("Engine.u", false);
+        File fire = copy("Fire.u", false);
+        Environment environment = new Environment(folder.getRoot(), Collections.singletonList("*.u"));
+        environment.setPackageCacheSize(2);
+
+        UnrealPackage corePackage = environment.getPackage(core).orElseThrow(AssertionError::new);
+        UnrealPackage enginePackage = environment.getPackage(engine).orElseThrow(AssertionError::new);
+        assertSame(corePackage, environment.getPackage(core).orElseThrow(AssertionError::new));
+
+        // Engine is least recently used
+        UnrealPackage firePackage = environment.getPackage(fire).orElseThrow(AssertionError::new);
+        assertSame(corePackage, environment.getPackage(core).orElseThrow(AssertionError::new));
+        assertSame(firePackage, environment.getPackage(fire).orElseThrow(AssertionError::new));
+
+        // evicted package is loaded again, evicting Core
+        assertNotSame(enginePackage, environment.getPackage(engine).orElseThrow(AssertionError::new));
+        assertSame(firePackage, environment.getPackage(fire).orElseThrow(AssertionError::new));
+        assertNotSame(corePackage, environment.getPackage(core).orElseThrow(AssertionError::new));
+
+        assertTrue(environment.getExportEntry("Engine.Actor", "Core.Class"::equalsIgnoreCase).isPresent());
+    }
+
+    @Test
+    public void concurrentPackageResolution() throws Exception {
+        File core = copy("Core.u", false);
+        copy("Engine.u", false);
+        Environment environment = new Environment(folder.getRoot(), Collections.singletonList("*.u"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<UnrealPackage>> packages = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                packages.add(executor.submit(() -> {
+                    assertTrue(environment.getExportEntry("Engine.Actor", "Core.Class"::equalsIgnoreCase).isPresent());
+                    return environment.getPackage(core).orElseThrow(AssertionError::new);
+                }));
+            }
+            // each package is loaded once
+            UnrealPackage first = packages.get(0).get(1, TimeUnit.MINUTES);
+            for (Future<UnrealPackage> up : packages) {
+                assertSame(first, up.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertMappedDataEquals() {
+        Environment environment = new Environment(folder.getRoot(), Collections.singletonList("*.u"));
+        environment.setMappedExtensions(Collections.singleton("u"));
+
+        File file = environment.getPackage("Core").findFirst().orElseThrow(AssertionError::new);
+        UnrealPackage up = environment.getPackage(file).orElseThrow(AssertionError::new);
+        for (UnrealPackage.ExportEntry entry : up.getExportTable()) {
+            ByteBuffer buffer = environment.getObjectRawData(entry);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertArrayEquals(entry.getObjectFullName(), entry.getObjectRawDataExternally(), bytes);
+        }
+    }
+
+    /**
+     * @param decrypt store fixture without Lineage2Ver111 header and encryption
+     */
+    private File copy(String name, boolean decrypt) throws IOException {
+        byte[] data = Files.readAllBytes(new File(SYSTEM, name).toPath());
+        if (decrypt) {
+            data = Arrays.copyOfRange(data, 28, data.length);
+            for (int i = 0; i < data.length; i++) {
+                data[i] ^= 0xAC;
+            }
+        }
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), data);
+        return file;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.*;
+
+public class ExportIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        File core = copyOfCore();
+        File indexFile = new File(folder.getRoot(), "export.index");
+
+        ExportIndex index = ExportIndex.load(indexFile);
+        try (UnrealPackage up = new UnrealPackage(core, true)) {
+            index.put(core, up);
+        }
+        index.save();
+        assertTrue(indexFile.isFile());
+
+        ExportIndex.PackageIndex packageIndex = ExportIndex.load(indexFile).get(core);
+        assertNotNull(packageIndex);
+        assertTrue(packageIndex.containsFullName("core.object", "Core.Class"::equalsIgnoreCase));
+        assertFalse(packageIndex.containsFullName("Core.Object", "Core.Function"::equalsIgnoreCase));
+        assertTrue(packageIndex.containsName("Vector", "Core.Struct"::equalsIgnoreCase));
+        assertFalse(packageIndex.containsName("NoSuchExport", clazz -> true));
+    }
+
+    @Test
+    public void changedFileIsNotIndexed() throws IOException {
+        File core = copyOfCore();
+        File indexFile = new File(folder.getRoot(), "export.index");
+
+        ExportIndex index = ExportIndex.load(indexFile);
+        try (UnrealPackage up = new UnrealPackage(core, true)) {
+            index.put(core, up);
+        }
+        index.save();
+
+        assertTrue(core.setLastModified(core.lastModified() - 60_000));
+        assertNull(ExportIndex.load(indexFile).get(core));
+    }
+
+    private File copyOfCore() throws IOException {
+        File core = new File(folder.getRoot(), "Core.u");
+        Files.copy(new File("src/test/resources/system/Core.u").toPath(), core.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return core;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import acmi.l2.clientmod.unreal.core.Class;
+import acmi.l2.clientmod.unreal.core.Object;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+public class UnrealSerializerFactoryTest {
+    private static final File SYSTEM = new File("src/test/resources/system");
+    private static final int THREADS = 8;
+
+    private static Environment environment() {
+        return Environment.fromIni(new File(SYSTEM, "L2.ini"));
+    }
+
+    private static List<UnrealPackage.ExportEntry> classes() {
+        List<UnrealPackage.ExportEntry> classes = new ArrayList<>();
+        for (File file : Objects.requireNonNull(SYSTEM.listFiles((dir, name) -> name.endsWith(".u")))) {
+            try (UnrealPackage up = new UnrealPackage(file, true)) {
+                up.getExportTable()
+                        .stream()
+                        .filter(e -> e.getFullClassName().equalsIgnoreCase("Core.Class"))
+                        .forEach(classes::add);
+            }
+        }
+        return classes;
+    }
+
+    private static String describe(Object obj) {
+        Class clazz = (Class) obj;
+        assertNotNull(obj.entry.getObjectFullName(), clazz.classUuid);
+        // default properties are read before class is published
+        return clazz.classFlags + " " + clazz.bytecode.length + " " + clazz.properties + " " + StreamSupport.stream(clazz.spliterator(), false)
+                .map(field -> field.entry.getObjectFullName())
+                .collect(Collectors.joining(","));
+    }
+
+    @Test
+    public void concurrentLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            assertConcurrentLoad(new UnrealSerializerFactory(environment()), executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void virtualLoadThreads() throws Exception {
+        ExecutorService executor;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            Assume.assumeNoException("virtual threads are not supported", e);
+            return;
+        }
+        String loader = System.getProperty("L2unreal.loader");
+        System.setProperty("L2unreal.loader", "virtual");
+        UnrealSerializerFactory concurrent;
+        try {
+            concurrent = new UnrealSerializerFactory(environment());
+        } finally {
+            if (loader != null) {
+                System.setProperty("L2unreal.loader", loader);
+            } else {
+                System.clearProperty("L2unreal.loader");
+            }
+        }
+        try {
+            // both callers and loaders are virtual threads waiting for each other's loads
+            assertConcurrentLoad(concurrent, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertConcurrentLoad(UnrealSerializerFactory concurrent, ExecutorService executor) throws Exception {
+        List<UnrealPackage.ExportEntry> classes = classes();
+
+        UnrealSerializerFactory sequential = new UnrealSerializerFactory(environment());
+        Map<String, String> expected = new HashMap<>();
+        for (UnrealPackage.ExportEntry entry : classes) {
+            expected.put(entry.getObjectFullName(), describe(sequential.getOrCreateObject(entry)));
+        }
+
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            List<UnrealPackage.ExportEntry> order = new ArrayList<>(classes);
+            // different orders make threads load objects referencing each other
+            Collections.shuffle(order, new Random(i));
+            results.add(executor.submit(() -> {
+                Map<String, Object> loaded = new HashMap<>();
+                for (UnrealPackage.ExportEntry entry : order) {
+                    Object obj = concurrent.getOrCreateObject(entry);
+                    assertEquals(expected.get(entry.getObjectFullName()), describe(obj));
+                    loaded.put(entry.getObjectFullName(), obj);
+                }
+                return loaded;
+            }));
+        }
+
+        Map<String, Object> first = results.get(0).get(1, TimeUnit.MINUTES);
+        for (Future<Map<String, Object>> result : results) {
+            Map<String, Object> loaded = result.get(1, TimeUnit.MINUTES);
+            for (Map.Entry<String, Object> e : first.entrySet()) {
+                assertSame(e.getKey(), e.getValue(), loaded.get(e.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void lazyObjectRefs() {
+        List<UnrealPackage.ExportEntry> classes = classes();
+        UnrealSerializerFactory eager = new UnrealSerializerFactory(environment());
+        UnrealSerializerFactory lazy = new UnrealSerializerFactory(environment());
+        lazy.setLazyObjectRefs(true);
+
+        for (UnrealPackage.ExportEntry entry : classes) {
+            Class clazz = (Class) lazy.getOrCreateObject(entry);
+            // iteration resolves fields
+            StreamSupport.stream(clazz.spliterator(), false)
+                    .forEach(field -> assertNull(field.entry.getObjectFullName(), field.loader));
+            assertEquals(describe(eager.getOrCreateObject(entry)), describe(clazz));
+        }
+    }
+
+    @Test
+    public void smallStack() {
+        UnrealSerializerFactory serializer = new UnrealSerializerFactory(environment());
+        // loads run on loader threads, references and superclasses are loaded from a queue, not recursively
+        serializer.setLoadThreadStackSize(256 * 1024);
+        for (UnrealPackage.ExportEntry entry : classes()) {
+            assertNotNull(((Class) serializer.getOrCreateObject(entry)).classUuid);
+        }
+    }
+}
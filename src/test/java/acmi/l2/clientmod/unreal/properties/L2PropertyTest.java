@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.unreal.Environment;
+import acmi.l2.clientmod.unreal.UnrealSerializerFactory;
+import acmi.l2.clientmod.unreal.core.Property;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class L2PropertyTest {
+    private static UnrealSerializerFactory serializer;
+
+    @BeforeClass
+    public static void init() {
+        serializer = new UnrealSerializerFactory(Environment.fromIni(new File("src/test/resources/system/L2.ini")));
+    }
+
+    private static Property template(String struct, String name) {
+        Property template = serializer.getStructLayout(struct).find(name);
+        assertNotNull(struct + "." + name, template);
+        return template;
+    }
+
+    @Test
+    public void unboxedValues() {
+        L2Property pitch = new L2Property(template("Core.Object.Rotator", "Pitch"));
+        assertFalse(pitch.isSet(0));
+        assertNull(pitch.getAt(0));
+
+        pitch.putAt(0, 5);
+        assertTrue(pitch.isSet(0));
+        assertEquals(5, pitch.getAt(0));
+        assertEquals(5, pitch.getIntAt(0));
+
+        pitch.putAt(0, null);
+        assertFalse(pitch.isSet(0));
+        assertEquals(0, pitch.getIntAt(0));
+
+        L2Property x = new L2Property(template("Core.Object.Vector", "X"));
+        x.putFloatAt(0, 1.5f);
+        assertEquals(1.5f, x.getAt(0));
+    }
+
+    @Test
+    public void otherValueTypes() {
+        L2Property pitch = new L2Property(template("Core.Object.Rotator", "Pitch"));
+        pitch.putAt(0, (short) 7);
+        assertEquals((short) 7, pitch.getAt(0));
+        assertEquals(7, pitch.getIntAt(0));
+
+        L2Property x = new L2Property(template("Core.Object.Vector", "X"));
+        x.putAt(0, 2.5);
+        assertEquals(2.5, x.getAt(0));
+        assertEquals(2.5f, x.getFloatAt(0), 0f);
+    }
+
+    @Test
+    public void copy() {
+        L2Property pitch = new L2Property(template("Core.Object.Rotator", "Pitch"));
+        pitch.putIntAt(0, 3);
+        L2Property copy = pitch.copy();
+        assertEquals(pitch, copy);
+        copy.putIntAt(0, 4);
+        assertEquals(3, pitch.getIntAt(0));
+
+        L2Property boxed = new L2Property(template("Core.Object.Rotator", "Yaw"));
+        boxed.putAt(0, 9L);
+        assertEquals(9L, boxed.copy().getAt(0));
+    }
+
+    @Test
+    public void intArrayList() {
+        IntArrayList list = new IntArrayList();
+        list.addAll(Arrays.asList(1, 2, 3));
+        assertFalse(list.isBoxed());
+        list.remove(1);
+        assertEquals(Arrays.asList(1, 3), list);
+
+        list.add(null);
+        list.add((short) 4);
+        assertTrue(list.isBoxed());
+        assertEquals(Arrays.asList(1, 3, null, (short) 4), list);
+        assertArrayEquals(new int[]{1, 3, 0, 4}, list.toIntArray());
+
+        list.set(2, 5);
+        assertEquals(5, list.getInt(2));
+
+        list.clear();
+        list.addInt(6);
+        assertFalse(list.isBoxed());
+        assertEquals(6, list.get(0));
+    }
+
+    @Test
+    public void floatArrayList() {
+        FloatArrayList list = new FloatArrayList();
+        list.add(1f);
+        list.add(2.0);
+        assertTrue(list.isBoxed());
+        assertEquals(Arrays.asList(1f, 2.0), list);
+        assertArrayEquals(new float[]{1f, 2f}, list.toFloatArray(), 0f);
+
+        List<Object> copy = new FloatArrayList();
+        copy.addAll(list);
+        assertEquals(list, copy);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.io.UnrealPackage;
+import acmi.l2.clientmod.unreal.Environment;
+import acmi.l2.clientmod.unreal.UnrealSerializerFactory;
+import acmi.l2.clientmod.unreal.core.Object;
+import acmi.l2.clientmod.unreal.core.StructProperty;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class PropertyListTest {
+    private static final File SYSTEM = new File("src/test/resources/system");
+
+    private static UnrealSerializerFactory serializer;
+
+    @BeforeClass
+    public static void init() {
+        serializer = new UnrealSerializerFactory(Environment.fromIni(new File(SYSTEM, "L2.ini")));
+    }
+
+    private static L2Property property(String struct, String name, int value) {
+        L2Property property = new L2Property(serializer.getStructLayout(struct).find(name));
+        property.putIntAt(0, value);
+        return property;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String describe(List<L2Property> properties) {
+        return properties.stream()
+                .map(p -> p.getName() + "=" + IntStream.range(0, p.getSize())
+                        .mapToObj(i -> p.getTemplate() instanceof StructProperty && p.getAt(i) != null ?
+                                describe((List<L2Property>) p.getAt(i)) : String.valueOf(p.getAt(i)))
+                        .collect(Collectors.joining(",", "[", "]")))
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static List<Object> classes(UnrealSerializerFactory serializer) {
+        List<Object> classes = new ArrayList<>();
+        try (UnrealPackage up = new UnrealPackage(new File(SYSTEM, "Engine.u"), true)) {
+            up.getExportTable()
+                    .stream()
+                    .filter(e -> e.getFullClassName().equalsIgnoreCase("Core.Class"))
+                    .map(serializer::getOrCreateObject)
+                    .forEach(classes::add);
+        }
+        return classes;
+    }
+
+    @Test
+    public void indexAfterRemoveAndSet() {
+        PropertyList list = new PropertyList();
+        list.add(property("Core.Object.Rotator", "Pitch", 1));
+        list.add(property("Core.Object.Rotator", "Yaw", 2));
+        list.add(property("Core.Object.Rotator", "Pitch", 3));
+        // first property with name
+        assertEquals(1, list.find("PITCH").getIntAt(0));
+
+        list.remove(0);
+        assertEquals(3, list.find("Pitch").getIntAt(0));
+
+        list.set(1, property("Core.Object.Rotator", "Roll", 4));
+        assertNull(list.find("Pitch"));
+        assertEquals(4, list.find("Roll").getIntAt(0));
+        assertEquals(2, PropertiesUtil.getAt(list, "Yaw").getIntAt(0));
+
+        list.add(0, property("Core.Object.Rotator", "Roll", 5));
+        assertEquals(5, list.find("Roll").getIntAt(0));
+        assertNull(list.find("Unknown"));
+    }
+
+    @Test
+    public void deferredDecodedOnce() {
+        AtomicInteger decodes = new AtomicInteger();
+        PropertyList list = new PropertyList();
+        list.defer(() -> {
+            decodes.incrementAndGet();
+            return Collections.singletonList(property("Core.Object.Rotator", "Pitch", 1));
+        });
+        assertEquals(0, decodes.get());
+
+        assertEquals(1, list.size());
+        L2Property pitch = list.find("pitch");
+        assertNotNull(pitch);
+        // handed out elements are kept
+        pitch.putIntAt(0, 2);
+        assertSame(pitch, list.get(0));
+        assertEquals(2, list.get(0).getIntAt(0));
+        assertEquals(1, decodes.get());
+    }
+
+    @Test
+    public void deferredModified() {
+        PropertyList list = new PropertyList();
+        list.defer(() -> Collections.singletonList(property("Core.Object.Rotator", "Pitch", 1)));
+
+        list.add(property("Core.Object.Rotator", "Yaw", 2));
+        assertEquals(2, list.size());
+        assertEquals(1, list.find("Pitch").getIntAt(0));
+        assertEquals(2, list.find("Yaw").getIntAt(0));
+
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertNull(list.find("Pitch"));
+    }
+
+    @Test
+    public void lazyProperties() {
+        UnrealSerializerFactory lazy = new UnrealSerializerFactory(Environment.fromIni(new File(SYSTEM, "L2.ini")));
+        lazy.setLazyProperties(true);
+
+        List<Object> expected = classes(serializer);
+        List<Object> actual = classes(lazy);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), describe(expected.get(i).properties), describe(actual.get(i).properties));
+        }
+    }
+}
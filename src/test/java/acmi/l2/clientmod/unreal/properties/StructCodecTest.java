@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.io.DataOutputStream;
+import acmi.l2.clientmod.io.UnrealPackage;
+import acmi.l2.clientmod.unreal.Environment;
+import acmi.l2.clientmod.unreal.UnrealRuntimeContext;
+import acmi.l2.clientmod.unreal.UnrealSerializerFactory;
+import acmi.l2.clientmod.unreal.util.ByteBufferObjectInput;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StructCodecTest {
+    private static final File SYSTEM = new File("src/test/resources/system");
+    private static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+    private static UnrealSerializerFactory serializer;
+
+    @BeforeClass
+    public static void init() {
+        serializer = new UnrealSerializerFactory(Environment.fromIni(new File(SYSTEM, "L2.ini")));
+    }
+
+    private static ByteBufferObjectInput<UnrealRuntimeContext> input(byte[] bytes) {
+        try (UnrealPackage up = new UnrealPackage(new File(SYSTEM, "Core.u"), true)) {
+            UnrealRuntimeContext context = new UnrealRuntimeContext(up.getExportTable().get(0), serializer);
+            return new ByteBufferObjectInput<>(ByteBuffer.wrap(bytes), CHARSET, 0, serializer, context);
+        }
+    }
+
+    private static byte[] floats(float... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+        return buffer.array();
+    }
+
+    private static List<L2Property> vector(float x, float y, float z) {
+        StructLayout layout = serializer.getStructLayout("Core.Object.Vector");
+        List<L2Property> vector = new PropertyList();
+        float[] values = {x, y, z};
+        for (int i = 0; i < values.length; i++) {
+            L2Property property = new L2Property(layout.get(i));
+            property.putFloatAt(0, values[i]);
+            vector.add(property);
+        }
+        return vector;
+    }
+
+    @Test
+    public void vectorRoundTrip() {
+        StructCodec codec = PropertiesUtil.getStructCodec("core.object.vector");
+        assertNotNull(codec);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes, CHARSET), vector(1f, 2f, 3f));
+        assertArrayEquals(floats(1f, 2f, 3f), bytes.toByteArray());
+
+        List<L2Property> read = PropertiesUtil.readStructBin(input(bytes.toByteArray()), "Core.Object.Vector");
+        assertEquals(2f, PropertiesUtil.getAt(read, "Y").getFloatAt(0), 0f);
+        assertEquals(3f, PropertiesUtil.getAt(read, "z").getFloatAt(0), 0f);
+    }
+
+    @Test
+    public void fieldsWithoutComponent() {
+        StructCodec codec = new StructCodec(StructCodec.Component.ofFloat("Y"));
+        List<L2Property> read = codec.read(input(floats(5f)), serializer.getStructLayout("Core.Object.Vector"));
+        assertEquals(3, read.size());
+        assertFalse(PropertiesUtil.getAt(read, "X").isSet(0));
+        assertEquals(5f, PropertiesUtil.getAt(read, "Y").getFloatAt(0), 0f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes, CHARSET), vector(1f, 2f, 3f));
+        assertArrayEquals(floats(2f), bytes.toByteArray());
+    }
+
+    @Test
+    public void layoutOrderWithoutCodec() {
+        assertNull(PropertiesUtil.getStructCodec("Core.Object.Plane"));
+        StructLayout layout = serializer.getStructLayout("Core.Object.Plane");
+
+        float[] values = new float[layout.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        List<L2Property> read = PropertiesUtil.readStructBin(input(floats(values)), "Core.Object.Plane");
+        assertEquals(values.length, read.size());
+        for (int i = 0; i < values.length; i++) {
+            assertSame(layout.get(i), read.get(i).getTemplate());
+            assertEquals(values[i], read.get(i).getFloatAt(0), 0f);
+        }
+    }
+}
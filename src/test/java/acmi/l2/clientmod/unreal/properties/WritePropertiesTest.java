@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2021 acmi
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package acmi.l2.clientmod.unreal.properties;
+
+import acmi.l2.clientmod.io.ObjectOutput;
+import acmi.l2.clientmod.io.ObjectOutputStream;
+import acmi.l2.clientmod.io.UnrealPackage;
+import acmi.l2.clientmod.unreal.Environment;
+import acmi.l2.clientmod.unreal.UnrealRuntimeContext;
+import acmi.l2.clientmod.unreal.UnrealSerializerFactory;
+import acmi.l2.clientmod.unreal.core.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.*;
+
+public class WritePropertiesTest {
+    private static final File SYSTEM = new File("src/test/resources/system");
+
+    /**
+     * Property by property serialization, as it was before {@link PropertiesUtil#writeProperties} wrote values in place.
+     */
+    private static void writeReference(ObjectOutput<UnrealRuntimeContext> output, List<L2Property> properties) {
+        UnrealPackage up = output.getContext().getUnrealPackage();
+        for (L2Property property : properties) {
+            Property template = property.getTemplate();
+            for (int i = 0; i < property.getSize(); i++) {
+                java.lang.Object obj = property.getAt(i);
+                if (obj == null) {
+                    continue;
+                }
+
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ObjectOutput<UnrealRuntimeContext> objBuffer = new ObjectOutputStream<>(baos, output.getCharset(), 0, output.getSerializerFactory(), output.getContext());
+                writeReference(objBuffer, template, obj);
+                byte[] bytes = baos.toByteArray();
+
+                PropertiesUtil.Type type = PropertiesUtil.getType(template);
+                int size = PropertiesUtil.getPropertySize(bytes.length);
+                boolean array = (i > 0) || (type == PropertiesUtil.Type.BOOL && ((Boolean) obj));
+                output.writeCompactInt(up.nameReference(template.entry.getObjectName().getName()));
+                output.writeByte((array ? 1 << 7 : 0) | (size << 4) | type.ordinal());
+                if (type == PropertiesUtil.Type.STRUCT) {
+                    output.writeCompactInt(up.nameReference(((StructProperty) template).struct.entry.getObjectName().getName()));
+                }
+                switch (size) {
+                    case 5:
+                        output.writeByte(bytes.length);
+                        break;
+                    case 6:
+                        output.writeShort(bytes.length);
+                        break;
+                    case 7:
+                        output.writeInt(bytes.length);
+                        break;
+                }
+                if (i > 0) {
+                    output.writeByte(i);
+                }
+                output.writeBytes(bytes);
+            }
+        }
+        output.writeCompactInt(up.nameReference("None"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeReference(ObjectOutput<UnrealRuntimeContext> objBuffer, Property template, java.lang.Object obj) {
+        if (template instanceof ArrayProperty) {
+            List<java.lang.Object> list = (List<java.lang.Object>) obj;
+            objBuffer.writeCompactInt(list.size());
+            Property inner = objBuffer.getContext().getSerializer().resolve(((ArrayProperty) template).inner);
+            for (java.lang.Object element : list) {
+                writeReference(objBuffer, inner, element);
+            }
+        } else if (template instanceof StructProperty) {
+            String structName = ((StructProperty) template).struct.getFullName();
+            if (PropertiesUtil.getStructCodec(structName) != null) {
+                PropertiesUtil.writeStructBin(objBuffer, (List<L2Property>) obj, structName);
+            } else {
+                writeReference(objBuffer, (List<L2Property>) obj);
+            }
+        } else {
+            PropertiesUtil.write(objBuffer, template, obj);
+        }
+    }
+
+    @Test
+    public void sameAsPropertyByPropertyWrite() {
+        UnrealSerializerFactory serializer = new UnrealSerializerFactory(Environment.fromIni(new File(SYSTEM, "L2.ini")));
+        int compared = 0;
+        for (File file : Objects.requireNonNull(SYSTEM.listFiles((dir, name) -> name.endsWith(".u")))) {
+            try (UnrealPackage up = new UnrealPackage(file, true)) {
+                for (UnrealPackage.ExportEntry entry : up.getExportTable()) {
+                    if (!entry.getFullClassName().equalsIgnoreCase("Core.Class")) {
+                        continue;
+                    }
+                    acmi.l2.clientmod.unreal.core.Object obj = serializer.getOrCreateObject(entry);
+                    UnrealRuntimeContext context = new UnrealRuntimeContext(obj.entry, serializer);
+
+                    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                    writeReference(new ObjectOutputStream<>(expected, up.getFile().getCharset(), 0, serializer, context), obj.properties);
+                    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                    PropertiesUtil.writeProperties(new ObjectOutputStream<>(actual, up.getFile().getCharset(), 0, serializer, context), obj.properties);
+
+                    assertArrayEquals(obj.toString(), expected.toByteArray(), actual.toByteArray());
+                    compared++;
+                }
+            }
+        }
+        assertTrue(compared > 0);
+    }
+}